@@ -4,8 +4,6 @@ import androidx.annotation.ColorRes;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
 
-import com.google.android.material.chip.Chip;
-
 import java.util.Objects;
 
 public class ActionChipChoice implements HasId,
@@ -17,13 +15,8 @@ public class ActionChipChoice implements HasId,
     final float textSize;
     final String[] contentDescriptions;
     final int order;
-    final Runnable onLoaded;
+    Runnable onLoaded;
     boolean isSelected;
-    Chip chip;
-
-    void attach(Chip chip) {
-        this.chip = chip;
-    }
 
     public static class Builder {
         private String id;
@@ -18,8 +18,8 @@ public class ActionIcon implements HasId, HasContentDescriptions,
     final int tintColor;
     final String[] contentDescriptions;
     final int order;
-    final Runnable onLoaded;
-    final Action.OnSelected onSelected;
+    Runnable onLoaded;
+    Action.OnSelected onSelected;
     boolean skipTracking;
     boolean skipSelected;
 
@@ -22,12 +22,28 @@ class ActionIconViewBuilder implements ActionViewBuilder {
         MaterialButton button = (MaterialButton) inflater.inflate(
                 R.layout.item_interactive_assistant_action_icon,
                 viewGroup, false);
+        return bind(button, action);
+    }
 
+    @Override
+    public View createView(ViewGroup viewGroup, Action action, ActionViewPool pool) {
+        MaterialButton button = (MaterialButton) pool.obtain(viewGroup,
+                R.layout.item_interactive_assistant_action_icon);
+        return bind(button, action);
+    }
+
+    private View bind(MaterialButton button, Action action) {
         ActionIcon actionIcon = (ActionIcon) action;
         button.setText(actionIcon.text);
-        button.setIcon(ContextCompat.getDrawable(viewGroup.getContext(), actionIcon.icon));
-        if (actionIcon.tintColor > 0) {
-            button.setIconTint(ColorStateList.valueOf(actionIcon.tintColor));
+        button.setIcon(ContextCompat.getDrawable(button.getContext(), actionIcon.icon));
+        // A reused button might have the tint of another Action
+        if (button.getTag(R.id.interactive_assistant_default_tint) == null) {
+            button.setTag(R.id.interactive_assistant_default_tint, new Object[]{button.getIconTint()});
+        }
+        if (actionIcon.tintColor != 0) {
+            button.setIconTint(ContextCompat.getColorStateList(button.getContext(), actionIcon.tintColor));
+        } else {
+            button.setIconTint((ColorStateList) ((Object[]) button.getTag(R.id.interactive_assistant_default_tint))[0]);
         }
         button.setTag(R.id.interactive_assistant_action_id, actionIcon.id);
 
@@ -6,6 +6,10 @@ import android.view.ViewGroup;
 
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.flexbox.FlexboxLayout;
+
+import java.util.List;
+
 class ActionListViewHolderBuilder implements ViewHolderBuilder {
 
     public static ViewHolderBuilder build() {
@@ -15,11 +19,15 @@ class ActionListViewHolderBuilder implements ViewHolderBuilder {
     @Override
     public RecyclerView.ViewHolder createViewHolder(ViewGroup viewGroup, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
-        View view = inflater.inflate(viewType, viewGroup, false);
+        return createViewHolder(inflater.inflate(viewType, viewGroup, false));
+    }
+
+    @Override
+    public RecyclerView.ViewHolder createViewHolder(View view) {
         return new ActionListViewHolderBuilder.ChatActionSetViewHolder(view);
     }
 
-    static class ChatActionSetViewHolder extends RecyclerView.ViewHolder implements Binder {
+    static class ChatActionSetViewHolder extends RecyclerView.ViewHolder implements PayloadBinder {
 
         ViewGroup viewGroup;
 
@@ -31,14 +39,46 @@ class ActionListViewHolderBuilder implements ViewHolderBuilder {
         @Override
         public void onBind(ViewAdapter adapter, int position) {
             ActionList actionList = (ActionList) adapter.getItems().get(position);
-            viewGroup.removeAllViews();
+            ActionViewPool pool = adapter.getActionViewPool();
+            pool.releaseChildren(viewGroup);
             for (Action action : actionList) {
                 View actionView = ((HasActionViewBuilder) action).getActionViewBuilder()
-                        .createView(viewGroup, action);
+                        .createView(viewGroup, action, pool);
                 actionView.setTag(R.id.interactive_assistant_item_position, position);
                 actionView.setOnClickListener(v -> adapter.getActionListener().onClick(v, action));
                 viewGroup.addView(actionView);
+                if (action instanceof ActionMultiChoice) {
+                    ((ActionMultiChoice) action).setOnSelectionChanged(
+                            () -> notifySelectionChanged(adapter, actionList));
+                }
+            }
+        }
+
+        private static void notifySelectionChanged(ViewAdapter adapter, ActionList actionList) {
+            List<Node> items = adapter.getItems();
+            // The row might have moved since it was bound, it is usually the last one
+            for (int position = items.size() - 1; position >= 0; position--) {
+                if (items.get(position) == actionList) {
+                    adapter.notifySelectionChanged(position);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean onBind(ViewAdapter adapter, int position, List<Object> payloads) {
+            if (!AssistantAdapter.isSelectionOnly(payloads)) return false;
+            ActionList actionList = (ActionList) adapter.getItems().get(position);
+            if (actionList.size() != viewGroup.getChildCount()) return false;
+            for (int i = 0, size = actionList.size(); i < size; i++) {
+                Action action = actionList.get(i);
+                if (action instanceof ActionMultiChoice) {
+                    ActionMultiChoiceViewBuilder.bindSelection(
+                            (FlexboxLayout) ((ViewGroup) viewGroup.getChildAt(i)).getChildAt(0),
+                            ((ActionMultiChoice) action).getActionChipChoices());
+                }
             }
+            return true;
         }
     }
 }
@@ -3,6 +3,7 @@ package chattylabs.assistant;
 import android.content.SharedPreferences;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import java.util.ArrayList;
@@ -20,12 +21,16 @@ public class ActionMultiChoice implements HasId,
     static final String SELECTED_OPTIONS = BuildConfig.LIBRARY_PACKAGE_NAME + ".MULTI_OPTION_SELECTED_OPTIONS";
 
     final String id;
-    final Runnable onLoaded;
+    Runnable onLoaded;
     final List<ActionChipChoice> actionChipChoices;
     final ActionText confirmationAction;
-    final OnOptionChangeListener onOptionChangeListener;
+    OnOptionChangeListener onOptionChangeListener;
     final boolean skipTracking;
     final boolean skipSelected;
+    private ActionMultiChoiceViewBuilder actionViewBuilder;
+    // Notifies the row displaying this Action that the selection changed
+    @Nullable
+    private Runnable onSelectionChanged;
 
     private ActionMultiChoice(Builder builder) {
         this.id                     = builder.id;
@@ -73,13 +78,14 @@ public class ActionMultiChoice implements HasId,
 
     @Override
     public ActionViewBuilder getActionViewBuilder() {
-        Collections.sort(actionChipChoices);
-        return new ActionMultiChoiceViewBuilder(onOptionChangeListener);
+        if (actionViewBuilder == null) {
+            actionViewBuilder = new ActionMultiChoiceViewBuilder();
+        }
+        return actionViewBuilder;
     }
 
     @Override
     public Node buildActionFeedback() {
-        Collections.sort(actionChipChoices);
         return new FeedbackActionMultiChoice.Builder()
                 .setActionChipChoices(actionChipChoices).build();
     }
@@ -89,6 +95,21 @@ public class ActionMultiChoice implements HasId,
         return Integer.compare(getOrder(), action.getOrder());
     }
 
+    void setOnSelectionChanged(@Nullable Runnable onSelectionChanged) {
+        this.onSelectionChanged = onSelectionChanged;
+    }
+
+    /**
+     * Selects an option, from its chip or from the speech recognizer,
+     * and lets the row displaying it update the checked state of its chips.
+     */
+    void select(@NonNull ActionChipChoice actionChipChoice, boolean selected) {
+        if (actionChipChoice.isSelected() == selected) return;
+        actionChipChoice.setSelected(selected);
+        if (onOptionChangeListener != null) onOptionChangeListener.onChange(actionChipChoice, selected);
+        if (onSelectionChanged != null) onSelectionChanged.run();
+    }
+
     public ActionText getConfirmationAction() {
         return confirmationAction;
     }
@@ -131,7 +152,7 @@ public class ActionMultiChoice implements HasId,
         for(ActionChipChoice actionChipChoice : currentActionChipChoices) {
             String[] expected = actionChipChoice.getContentDescriptions();
             if (expected != null && expected.length > 0 && checkWord(speechRecognizer, expected, result)) {
-                actionChipChoice.chip.setChecked(true);
+                select(actionChipChoice, true);
                 atLeastOneOptionWasSelected = true;
             }
         }
@@ -203,6 +224,8 @@ public class ActionMultiChoice implements HasId,
                 throw new NullPointerException("Forgot to set \"confirmationAction\" property?");
             }
 
+            // Sorted once, the views and the feedback bind the options in this order
+            Collections.sort(actionChipChoices);
             return new ActionMultiChoice(this);
         }
     }
@@ -1,87 +1,114 @@
 package chattylabs.assistant;
 
-import android.content.Context;
-import android.text.Spanned;
+import android.content.res.ColorStateList;
 import android.util.TypedValue;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.Nullable;
+
 import com.google.android.flexbox.FlexboxLayout;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
 
 import java.util.List;
 
-import static chattylabs.assistant.ActionMultiChoice.OnOptionChangeListener;
-
 class ActionMultiChoiceViewBuilder implements ActionViewBuilder {
 
-    private final OnOptionChangeListener onOptionChangeListener;
     private float defaultTextSize;
 
-    ActionMultiChoiceViewBuilder(OnOptionChangeListener onOptionChangeListener) {
-        this.onOptionChangeListener = onOptionChangeListener;
+    @Override
+    public View createView(ViewGroup viewGroup, Action action) {
+        return createView(viewGroup, action, new ActionViewPool());
     }
 
     @Override
-    public View createView(ViewGroup viewGroup, Action action) {
-        final Context context = viewGroup.getContext();
+    public View createView(ViewGroup viewGroup, Action action, ActionViewPool pool) {
         final ActionMultiChoice multiAction = (ActionMultiChoice) action;
-        final ViewGroup multiOptionAction = (ViewGroup) LayoutInflater.from(context)
-                .inflate(R.layout.item_interactive_assistant_action_multichoice, viewGroup, false);
+        final ViewGroup multiOptionAction = (ViewGroup) pool.obtain(viewGroup,
+                R.layout.item_interactive_assistant_action_multichoice);
         final FlexboxLayout optionsLayout = (FlexboxLayout) multiOptionAction.getChildAt(0);
         final MaterialButton confirmButton = (MaterialButton) multiOptionAction.getChildAt(1);
         final List<ActionChipChoice> actionChipChoices = multiAction.getActionChipChoices();
 
-        optionsLayout.removeAllViews();
-        for (ActionChipChoice actionChipChoice : actionChipChoices) {
-            optionsLayout.addView(getOption(context, actionChipChoice, optionsLayout,
-                    defaultTextSize, onOptionChangeListener, false));
+        // The chips of a reused view, or the placeholders of a new one, go back to the pool
+        pool.releaseChildren(optionsLayout);
+        for (int i = 0, size = actionChipChoices.size(); i < size; i++) {
+            optionsLayout.addView(getOption(pool, actionChipChoices.get(i), optionsLayout,
+                    defaultTextSize, multiAction));
         }
 
-        final Spanned span = InteractiveAssistant.formatHTML(multiAction.getConfirmationAction().text);
-        final CharSequence text = InteractiveAssistant.processEmoji(span);
-        confirmButton.setText(text);
+        final ActionText confirmationAction = multiAction.getConfirmationAction();
+        confirmButton.setText(TextCache.get(confirmationAction.id, confirmationAction.text));
         return multiOptionAction;
     }
 
-    static View getOption(Context context, ActionChipChoice actionChipChoice, FlexboxLayout container,
-                          float defaultTextSize, OnOptionChangeListener onOptionChangeListener, boolean isFeedback) {
-        final Chip chip = (Chip) LayoutInflater.from(context)
-                .inflate(R.layout.item_interactive_assistant_action_chip, container, false);
+    /**
+     * @param multiAction the Action the option is selected for, or null if it is displayed as feedback.
+     */
+    static View getOption(ActionViewPool pool, ActionChipChoice actionChipChoice, FlexboxLayout container,
+                          float defaultTextSize, @Nullable ActionMultiChoice multiAction) {
+        final Chip chip = (Chip) pool.obtain(container, R.layout.item_interactive_assistant_action_chip);
 
-        final Spanned span = InteractiveAssistant.formatHTML(actionChipChoice.getText());
-        final CharSequence text = InteractiveAssistant.processEmoji(span);
+        chip.setText(TextCache.get(actionChipChoice.id, actionChipChoice.getText()));
 
-        chip.setText(text);
-
-        if (defaultTextSize == 0) defaultTextSize = chip.getTextSize();
+        if (defaultTextSize == 0) defaultTextSize = getDefaultTextSize(chip);
         if (actionChipChoice.textSize > 0) {
             chip.setTextSize(TypedValue.COMPLEX_UNIT_SP, actionChipChoice.textSize);
         } else {
             chip.setTextSize(TypedValue.COMPLEX_UNIT_PX, defaultTextSize);
         }
 
-        if (!isFeedback)
-            chip.setOnCheckedChangeListener((compoundButton, selected) -> {
-                actionChipChoice.setSelected(selected);
-                if (onOptionChangeListener != null) {
-                    onOptionChangeListener.onChange(actionChipChoice, selected);
-                }
-            });
+        // A reused chip must not notify its previous choice while its state is set
+        chip.setOnCheckedChangeListener(null);
 
+        // A reused chip might have the icon of another choice
+        if (chip.getTag(R.id.interactive_assistant_default_tint) == null) {
+            chip.setTag(R.id.interactive_assistant_default_tint, new Object[]{chip.getChipIconTint()});
+        }
         if (actionChipChoice.getIcon() != 0) {
             chip.setChipIconResource(actionChipChoice.getIcon());
-            if (actionChipChoice.getIconTintColor() != 0)
-                chip.setChipIconTintResource(actionChipChoice.getIconTintColor());
+        } else {
+            chip.setChipIcon(null);
+        }
+        if (actionChipChoice.getIconTintColor() != 0) {
+            chip.setChipIconTintResource(actionChipChoice.getIconTintColor());
+        } else {
+            chip.setChipIconTint((ColorStateList) ((Object[]) chip.getTag(R.id.interactive_assistant_default_tint))[0]);
         }
         chip.setSelected(actionChipChoice.isSelected());
         chip.setChecked(actionChipChoice.isSelected());
-        chip.setClickable(!isFeedback);
+        chip.setClickable(multiAction != null);
 
-        actionChipChoice.attach(chip);
+        if (multiAction != null) {
+            chip.setOnCheckedChangeListener((compoundButton, selected) ->
+                    multiAction.select(actionChipChoice, selected));
+        }
 
         return chip;
     }
+
+    /**
+     * Updates only the checked state of the chips already bound to the given choices.
+     */
+    static void bindSelection(FlexboxLayout optionsLayout, List<ActionChipChoice> actionChipChoices) {
+        for (int i = 0, size = Math.min(optionsLayout.getChildCount(), actionChipChoices.size()); i < size; i++) {
+            final Chip chip = (Chip) optionsLayout.getChildAt(i);
+            final boolean selected = actionChipChoices.get(i).isSelected();
+            chip.setSelected(selected);
+            chip.setChecked(selected);
+        }
+    }
+
+    /**
+     * @return the text size of the chip layout, which a reused chip might not have anymore.
+     */
+    private static float getDefaultTextSize(Chip chip) {
+        Object size = chip.getTag(R.id.interactive_assistant_default_text_size);
+        if (!(size instanceof Float)) {
+            size = chip.getTextSize();
+            chip.setTag(R.id.interactive_assistant_default_text_size, size);
+        }
+        return (Float) size;
+    }
 }
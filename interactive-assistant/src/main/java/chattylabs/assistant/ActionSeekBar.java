@@ -8,8 +8,8 @@ public class ActionSeekBar implements HasId,
                                       HasOnSelected, CanSkipTracking, CanSkipSelected,
                                       HasActionViewBuilder, MustBuildActionFeedback, HasOnLoaded, Action {
     final String id;
-    final Runnable onLoaded;
-    final SeekBar.OnSeekBarChangeListener onSeekBarChangeListener;
+    Runnable onLoaded;
+    SeekBar.OnSeekBarChangeListener onSeekBarChangeListener;
     final ActionText confirmationAction;
     final boolean skipTracking;
     final boolean skipSelected;
@@ -1,7 +1,6 @@
 package chattylabs.assistant;
 
 import android.content.Context;
-import android.text.Spanned;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -40,9 +39,8 @@ class ActionSeekBarViewBuilder implements ActionViewBuilder {
         seekBar.setOnSeekBarChangeListener(this.listener);
         seekBarAction.setLazyProgress(seekBar::getProgress);
 
-        final Spanned span = InteractiveAssistant.formatHTML(seekBarAction.confirmationAction.text);
-        final CharSequence text = InteractiveAssistant.processEmoji(span);
-        confirmButton.setText(text);
+        confirmButton.setText(TextCache.get(seekBarAction.confirmationAction.id,
+                                            seekBarAction.confirmationAction.text));
         return layout;
     }
 }
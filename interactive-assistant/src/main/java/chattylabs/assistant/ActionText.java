@@ -15,8 +15,8 @@ public class ActionText implements HasId, HasContentDescriptions,
     final float textSize;
     final String[] contentDescriptions;
     final int order;
-    final Runnable onLoaded;
-    final OnSelected onSelected;
+    Runnable onLoaded;
+    OnSelected onSelected;
     boolean skipTracking;
     boolean skipSelected;
 
@@ -1,6 +1,5 @@
 package chattylabs.assistant;
 
-import android.text.Spanned;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -22,7 +21,17 @@ class ActionTextViewBuilder implements ActionViewBuilder {
         MaterialButton button = (MaterialButton) inflater.inflate(
                 R.layout.item_interactive_assistant_action_text,
                 viewGroup, false);
+        return bind(button, action);
+    }
+
+    @Override
+    public View createView(ViewGroup viewGroup, Action action, ActionViewPool pool) {
+        MaterialButton button = (MaterialButton) pool.obtain(viewGroup,
+                R.layout.item_interactive_assistant_action_text);
+        return bind(button, action);
+    }
 
+    private View bind(MaterialButton button, Action action) {
         ActionText actionText = (ActionText) action;
         if (defaultTextSize == 0) defaultTextSize = button.getTextSize();
         if (actionText.textSize > 0) {
@@ -30,9 +39,7 @@ class ActionTextViewBuilder implements ActionViewBuilder {
         } else {
             button.setTextSize(TypedValue.COMPLEX_UNIT_PX, defaultTextSize);
         }
-        Spanned span = InteractiveAssistant.formatHTML(actionText.text);
-        CharSequence text = InteractiveAssistant.processEmoji(span);
-        button.setText(text);
+        button.setText(TextCache.get(actionText.id, actionText.text));
 
         button.setTag(R.id.interactive_assistant_action_id, actionText.id);
 
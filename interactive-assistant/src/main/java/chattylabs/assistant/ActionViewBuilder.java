@@ -5,4 +5,11 @@ import android.view.ViewGroup;
 
 public interface ActionViewBuilder {
     View createView(ViewGroup viewGroup, Action action);
+
+    /**
+     * Creates the view taking it from the pool when possible.
+     */
+    default View createView(ViewGroup viewGroup, Action action, ActionViewPool pool) {
+        return createView(viewGroup, action);
+    }
 }
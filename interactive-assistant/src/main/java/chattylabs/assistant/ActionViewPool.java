@@ -0,0 +1,77 @@
+package chattylabs.assistant;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps the views of the Actions that are not displayed anymore, by layout,
+ * so the {@link ActionViewBuilder}s can bind them again instead of inflating new ones.
+ * It is owned by the adapter and must be used from the main thread.
+ */
+public final class ActionViewPool {
+
+    static final int MAX_VIEWS_PER_LAYOUT = 20;
+
+    private final SparseArray<ArrayList<View>> views = new SparseArray<>();
+    private final SparseIntArray maxViews = new SparseIntArray();
+
+    /**
+     * Sets how many views of the given layout are kept, {@link #MAX_VIEWS_PER_LAYOUT} by default.
+     */
+    public void setMaxViews(@LayoutRes int layout, int max) {
+        maxViews.put(layout, max);
+        ArrayList<View> available = views.get(layout);
+        while (available != null && available.size() > max) available.remove(available.size() - 1);
+    }
+
+    /**
+     * @return a view of the given layout, reused if there is one available.
+     * Its state must be set again by the caller.
+     */
+    @NonNull
+    public View obtain(@NonNull ViewGroup parent, @LayoutRes int layout) {
+        ArrayList<View> available = views.get(layout);
+        if (available != null && !available.isEmpty()) {
+            return available.remove(available.size() - 1);
+        }
+        View view = LayoutInflater.from(parent.getContext()).inflate(layout, parent, false);
+        view.setTag(R.id.interactive_assistant_action_layout, layout);
+        return view;
+    }
+
+    /**
+     * Gives back a view that was detached from its parent. Views not obtained from a pool are ignored.
+     */
+    public void release(@NonNull View view) {
+        Object layout = view.getTag(R.id.interactive_assistant_action_layout);
+        if (!(layout instanceof Integer)) return;
+        ArrayList<View> available = views.get((Integer) layout);
+        if (available == null) {
+            available = new ArrayList<>();
+            views.put((Integer) layout, available);
+        }
+        if (available.size() < maxViews.get((Integer) layout, MAX_VIEWS_PER_LAYOUT)) {
+            view.setOnClickListener(null);
+            available.add(view);
+        }
+    }
+
+    /**
+     * Gives back every child of the group and removes them from it.
+     */
+    public void releaseChildren(@NonNull ViewGroup viewGroup) {
+        for (int i = viewGroup.getChildCount() - 1; i >= 0; i--) {
+            View child = viewGroup.getChildAt(i);
+            viewGroup.removeViewAt(i);
+            release(child);
+        }
+    }
+}
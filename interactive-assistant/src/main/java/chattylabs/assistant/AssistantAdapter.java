@@ -1,28 +1,123 @@
 package chattylabs.assistant;
 
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.collection.SimpleArrayMap;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 public class AssistantAdapter extends ViewAdapter<RecyclerView.ViewHolder> {
 
     private OnActionListener actionListener;
+    // The latest items, which in diffing mode might not be displayed yet
     private List<Node> items = new ArrayList<>();
     private SimpleArrayMap<Integer, ViewHolderBuilder> viewHolders = new SimpleArrayMap<>();
+    private final ActionViewPool actionViewPool = new ActionViewPool();
+    // Payload of a row whose options only changed their selection
+    private static final Object SELECTION_PAYLOAD = new Object();
+    // A multiple choice Action can have dozens of options
+    private static final int MAX_POOLED_CHIPS = 64;
+    // Items posted within the same frame, inserted all at once when the frame starts
+    private final List<Node> pendingItems = new ArrayList<>();
+    private boolean framePosted;
+    // View inflated ahead of time, wrapped by the next holder created
+    @Nullable
+    private View preInflatedView;
+    private final Choreographer.FrameCallback flushCallback = frameTimeNanos -> {
+        framePosted = false;
+        flush();
+    };
 
     public interface OnActionListener {
         void onClick(@NonNull View view, @NonNull Action action);
     }
 
+    /**
+     * One row of a snapshot submitted in diffing mode. Every row gets its own id when
+     * inserted, so a node displayed twice does not repeat an id, and it keeps the id when
+     * replaced by a node with the same {@link HasId}.
+     */
+    private static final class Row {
+        final Node node;
+        final long id;
+
+        Row(Node node, long id) {
+            this.node = node;
+            this.id   = id;
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF_CALLBACK = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return oldRow.id == newRow.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return oldRow.node == newRow.node;
+        }
+    };
+
+    @Nullable
+    private final AsyncListDiffer<Row> differ;
+    private final ArrayList<Long> rowIds = new ArrayList<>();
+    private long nextRowId;
+    // The displayed items in diffing mode
+    private final List<Node> currentItems = new AbstractList<Node>() {
+        @Override
+        public Node get(int index) {
+            return Objects.requireNonNull(differ).getCurrentList().get(index).node;
+        }
+
+        @Override
+        public int size() {
+            return Objects.requireNonNull(differ).getCurrentList().size();
+        }
+    };
+
     AssistantAdapter(OnActionListener actionListener) {
+        this(actionListener, false);
+    }
+
+    /**
+     * @param diffing whether every change is submitted as a snapshot, diffed on a background
+     *                thread and dispatched with stable ids, instead of notified by position.
+     */
+    AssistantAdapter(OnActionListener actionListener, boolean diffing) {
+        this(actionListener, diffing, null);
+    }
+
+    /**
+     * @param diffExecutor runs the diffs in diffing mode, or null for the background thread of the differ.
+     */
+    AssistantAdapter(OnActionListener actionListener, boolean diffing, @Nullable Executor diffExecutor) {
         this.actionListener = actionListener;
+        if (!diffing) {
+            this.differ = null;
+        } else if (diffExecutor == null) {
+            this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        } else {
+            this.differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+                    new AsyncDifferConfig.Builder<>(DIFF_CALLBACK).setBackgroundThreadExecutor(diffExecutor).build());
+        }
+        setHasStableIds(diffing);
+        actionViewPool.setMaxViews(R.layout.item_interactive_assistant_action_chip, MAX_POOLED_CHIPS);
     }
 
     @Override
@@ -30,14 +125,107 @@ public class AssistantAdapter extends ViewAdapter<RecyclerView.ViewHolder> {
         return actionListener;
     }
 
+    @Override
+    public ActionViewPool getActionViewPool() {
+        return actionViewPool;
+    }
+
     public void addItem(Node item) {
+        flush();
+        insert(Collections.singletonList(item));
+    }
+
+    public void addItems(List<Node> items) {
+        flush();
+        insert(items);
+    }
+
+    /**
+     * Adds the item on the next frame, together with every other item posted before it,
+     * so they cost one single notification and layout pass. Must be called on the main thread.
+     */
+    public void postItem(Node item) {
+        pendingItems.add(item);
+        if (!framePosted) {
+            framePosted = true;
+            Choreographer.getInstance().postFrameCallback(flushCallback);
+        }
+    }
+
+    /**
+     * Inserts the posted items now, so the items can be looked up or removed by position.
+     */
+    public void flush() {
+        if (framePosted) {
+            framePosted = false;
+            Choreographer.getInstance().removeFrameCallback(flushCallback);
+        }
+        if (pendingItems.isEmpty()) return;
+        List<Node> items = new ArrayList<>(pendingItems);
+        pendingItems.clear();
+        insert(items);
+    }
+
+    private void insert(List<Node> items) {
+        int position = this.items.size();
+        for (Node item : items) {
+            if (item instanceof HasViewLayout) {
+                int viewLayout = ((HasViewLayout) item).getViewLayout();
+                if (!viewHolders.containsKey(viewLayout))
+                    viewHolders.put(viewLayout, ((HasViewLayout) item).getViewHolderBuilder());
+            }
+        }
+        this.items.addAll(items);
+        if (differ != null) {
+            for (int i = 0, size = items.size(); i < size; i++) rowIds.add(nextRowId++);
+            submit();
+        } else {
+            notifyItemRangeInserted(position, items.size());
+        }
+    }
+
+    private void submit() {
+        List<Row> rows = new ArrayList<>(items.size());
+        for (int i = 0, size = items.size(); i < size; i++) {
+            rows.add(new Row(items.get(i), rowIds.get(i)));
+        }
+        Objects.requireNonNull(differ).submitList(rows);
+    }
+
+    public void setItem(int position, Node item) {
+        flush();
         if (item instanceof HasViewLayout) {
             int viewLayout = ((HasViewLayout) item).getViewLayout();
             if (!viewHolders.containsKey(viewLayout))
                 viewHolders.put(viewLayout, ((HasViewLayout) item).getViewHolderBuilder());
         }
-        items.add(item);
-        notifyItemInserted(getItemCount() - 1);
+        Node old = items.set(position, item);
+        if (differ != null) {
+            boolean sameId = old instanceof HasId && item instanceof HasId
+                             && ((HasId) old).getId().equals(((HasId) item).getId());
+            if (!sameId) rowIds.set(position, nextRowId++);
+            submit();
+        } else {
+            notifyItemChanged(position);
+        }
+    }
+
+    void registerViewHolder(@LayoutRes int viewLayout, ViewHolderBuilder builder) {
+        if (!viewHolders.containsKey(viewLayout)) viewHolders.put(viewLayout, builder);
+    }
+
+    /**
+     * Creates the holder of a view inflated ahead of time, with its view type set
+     * so it can be given to the {@link RecyclerView.RecycledViewPool}.
+     */
+    RecyclerView.ViewHolder createViewHolder(@NonNull ViewGroup parent, @LayoutRes int viewLayout,
+                                             @NonNull View view) {
+        preInflatedView = view;
+        try {
+            return createViewHolder(parent, viewLayout);
+        } finally {
+            preInflatedView = null;
+        }
     }
 
     public void checkViewHolders() {
@@ -50,12 +238,32 @@ public class AssistantAdapter extends ViewAdapter<RecyclerView.ViewHolder> {
         }
     }
 
+    /**
+     * @return the displayed items, which are the ones to bind.
+     */
     @Override
     public List<Node> getItems() {
-        return items;
+        return differ != null ? currentItems : items;
+    }
+
+    /**
+     * @return the items including the changes that might not be displayed yet.
+     */
+    List<Node> getLatestItems() {
+        flush();
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @return whether the last of the latest items is of the given type.
+     */
+    public boolean endsWith(Class type) {
+        flush();
+        return !items.isEmpty() && type.isInstance(items.get(items.size() - 1));
     }
 
     public int getLastPositionOf(Class type) {
+        flush();
         for (int a = items.size() - 1; a >= 0; a--) {
             if (type.isInstance(items.get(a))) return a;
         }
@@ -63,24 +271,43 @@ public class AssistantAdapter extends ViewAdapter<RecyclerView.ViewHolder> {
     }
 
     public void removeItem(int position) {
+        flush();
         items.remove(position);
-        notifyItemRemoved(position);
+        if (differ != null) {
+            rowIds.remove(position);
+            submit();
+        } else {
+            notifyItemRemoved(position);
+        }
+    }
+
+    public void removeLastItem() {
+        flush();
+        if (items.isEmpty()) return;
+        removeItem(items.size() - 1);
     }
 
     public Node getItem(int position) {
-        return this.items.get(position);
+        return getItems().get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ != null ? differ.getCurrentList().get(position).id : RecyclerView.NO_ID;
     }
 
     @Override
     public int getItemViewType(int position) {
-        Node item = items.get(position);
+        Node item = getItems().get(position);
         return ((HasViewLayout) item).getViewLayout();
     }
 
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup viewGroup, int viewType) {
-        return Objects.requireNonNull(viewHolders.get(viewType)).createViewHolder(viewGroup, viewType);
+        ViewHolderBuilder builder = Objects.requireNonNull(viewHolders.get(viewType));
+        return preInflatedView != null ? builder.createViewHolder(preInflatedView)
+                                       : builder.createViewHolder(viewGroup, viewType);
     }
 
     @Override
@@ -88,8 +315,45 @@ public class AssistantAdapter extends ViewAdapter<RecyclerView.ViewHolder> {
         ((ViewHolderBuilder.Binder) viewHolder).onBind(this, position);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder viewHolder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || !(viewHolder instanceof ViewHolderBuilder.PayloadBinder)
+            || !((ViewHolderBuilder.PayloadBinder) viewHolder).onBind(this, position, payloads)) {
+            onBindViewHolder(viewHolder, position);
+        }
+    }
+
+    /**
+     * Updates the selected options displayed by the given row, without binding it again.
+     * The selection changes made from the chips or the speech recognizer are notified
+     * this way, use it after changing the selection of a displayed {@link ActionChipChoice}.
+     *
+     * @param position the position of the row within {@link #getItems()}.
+     */
+    @Override
+    public void notifySelectionChanged(int position) {
+        notifyItemChanged(position, SELECTION_PAYLOAD);
+    }
+
+    static boolean isSelectionOnly(List<Object> payloads) {
+        for (Object payload : payloads) if (payload != SELECTION_PAYLOAD) return false;
+        return !payloads.isEmpty();
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        // The Actions of a recycled row can be displayed by any other row
+        if (holder instanceof ActionListViewHolderBuilder.ChatActionSetViewHolder) {
+            actionViewPool.releaseChildren(((ActionListViewHolderBuilder.ChatActionSetViewHolder) holder).viewGroup);
+        } else if (holder instanceof FeedbackActionMultiChoiceViewHolderBuilder.ChatActionMultiOptionTextSelectedViewHolder) {
+            actionViewPool.releaseChildren((ViewGroup) ((FeedbackActionMultiChoiceViewHolderBuilder
+                    .ChatActionMultiOptionTextSelectedViewHolder) holder).multiOptionAction.getChildAt(0));
+        }
+    }
+
     @Override
     public int getItemCount() {
-        return this.items.size();
+        return differ != null ? differ.getCurrentList().size() : this.items.size();
     }
 }
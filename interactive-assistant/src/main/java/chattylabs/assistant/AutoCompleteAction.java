@@ -18,7 +18,7 @@ public class AutoCompleteAction implements HasId, CanSkipTracking, CanSkipSelect
     final List<String> hints;
     final List<ActionText> actions;
     final int order;
-    final Runnable onLoaded;
+    Runnable onLoaded;
     boolean skipTracking;
     boolean skipSelected;
     AutoCompleteTextView widget;
@@ -2,7 +2,6 @@ package chattylabs.assistant;
 
 import android.content.Context;
 import android.text.InputType;
-import android.text.Spanned;
 import android.text.method.ScrollingMovementMethod;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -40,9 +39,7 @@ class AutoCompleteActionViewBuilder implements ActionViewBuilder {
             final Button button =
                     (Button) inflater.inflate(R.layout.item_interactive_assistant_action_text,
                     viewGroup, false);
-            final Spanned span = InteractiveAssistant.formatHTML(item.getText());
-            final CharSequence text = InteractiveAssistant.processEmoji(span);
-            button.setText(text);
+            button.setText(TextCache.get(item.id, item.getText()));
             final LinearLayout buttonLayout = (LinearLayout) widget.getChildAt(1);
             button.setOnClickListener(v -> {
                 widget.callOnClick();
@@ -0,0 +1,211 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a {@link FlowGraph}.
+ * <p>
+ * Every node gets a dense int index and the outgoing edges are stored in
+ * compressed sparse row form: the targets of node {@code i} are
+ * {@code targets[offsets[i]]} to {@code targets[offsets[i + 1] - 1]}.
+ * The Actions of a branching node are resolved and sorted once and reused, until one of
+ * the built nodes leaves the cache of the {@link FlowGraph}, so an evicted node is never
+ * kept alive by this snapshot.
+ */
+final class CompiledFlow {
+
+    private final FlowGraph graph;
+    private final Node[] nodes;
+    private final int[] offsets;
+    private final int[] targets;
+    // Condition of every edge, parallel to the targets and null when there is none
+    private final Condition[] conditions;
+    private final boolean[] conditional;
+    // Nodes are indexed by id, so a built node finds the index of its LazyNode
+    private final HashMap<Object, Integer> indices;
+    // Positions in the targets array of the Actions of every node, sorted by their order
+    private final int[][] sortedEdges;
+    // The Actions of every node resolved in the sorted order, with the removals from the cache they saw
+    private final ActionList[] actionLists;
+    private final int[] actionListsRemoved;
+
+    CompiledFlow(FlowGraph graph) {
+        this.graph = graph;
+        int size = graph.size();
+        int edgeCount = 0;
+        nodes   = new Node[size];
+        indices = new HashMap<>(size * 2);
+        int index = 0;
+        for (Node node : graph.nodes()) {
+            nodes[index] = node;
+            indices.put(keyOf(node), index++);
+            ArrayList<Node> edges = graph.getOutgoingEdges(node);
+            if (edges != null) edgeCount += edges.size();
+        }
+
+        offsets = new int[size + 1];
+        targets = new int[edgeCount];
+        conditions = new Condition[edgeCount];
+        conditional = new boolean[size];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            offsets[i] = position;
+            ArrayList<Node> edges = graph.getOutgoingEdges(nodes[i]);
+            if (edges != null) {
+                for (int e = 0, count = edges.size(); e < count; e++) {
+                    Condition condition = graph.getCondition(nodes[i], edges.get(e));
+                    if (condition != null) conditional[i] = true;
+                    conditions[position] = condition;
+                    //noinspection ConstantConditions
+                    targets[position++] = indices.get(keyOf(edges.get(e)));
+                }
+            }
+        }
+        offsets[size] = position;
+        sortedEdges = new int[size][];
+        actionLists = new ActionList[size];
+        actionListsRemoved = new int[size];
+    }
+
+    int size() {
+        return nodes.length;
+    }
+
+    /**
+     * @return the node as it is stored in the graph, which might be a {@link LazyNode}.
+     */
+    Node nodeAt(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * @return the node at the given index, built if it was not yet.
+     */
+    Node resolve(int index) {
+        return graph.resolve(nodes[index]);
+    }
+
+    boolean isAction(int index) {
+        Node node = nodes[index];
+        return node instanceof Action || (node instanceof LazyNode && ((LazyNode) node).isAction);
+    }
+
+    /**
+     * @return the index of the node or -1 if it is not part of the flow.
+     */
+    int indexOf(@Nullable Node node) {
+        if (node == null) return -1;
+        Integer index = indices.get(keyOf(node));
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @return the index of the node with the given id or -1 if it is not part of the flow.
+     */
+    int indexOf(@NonNull String id) {
+        Integer index = indices.get(id);
+        return index != null ? index : -1;
+    }
+
+    private static Object keyOf(Node node) {
+        return node instanceof HasId ? ((HasId) node).getId() : node;
+    }
+
+    int getOutDegree(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * @return the index of the target node reached by the given outgoing edge.
+     */
+    int getTarget(int index, int edge) {
+        return targets[offsets[index] + edge];
+    }
+
+    @Nullable
+    Condition getCondition(int index, int edge) {
+        return conditions[offsets[index] + edge];
+    }
+
+    /**
+     * Chooses the next node of a node that is not followed by Actions.
+     * Connections with a condition are tried first, in the order they were added,
+     * and a connection without condition is taken when none of them is true.
+     *
+     * @return the index of the next node, or -1 if there is none.
+     */
+    int route(int index, Map<String, Object> variables) {
+        int fallback = -1;
+        for (int e = offsets[index], end = offsets[index + 1]; e < end; e++) {
+            if (isAction(targets[e])) continue;
+            Condition condition = conditions[e];
+            if (condition == null) {
+                if (fallback == -1) fallback = targets[e];
+            } else if (condition.test(variables)) {
+                return targets[e];
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * @return the Actions connected to the given node whose condition is true, sorted by their order.
+     */
+    ActionList getActionList(int index, Map<String, Object> variables) {
+        ActionList all = getActionList(index);
+        if (!conditional[index]) return all;
+        int[] edges = getSortedEdges(index);
+        ActionList actionList = new ActionList();
+        for (int i = 0; i < edges.length; i++) {
+            Condition condition = conditions[edges[i]];
+            if (condition == null || condition.test(variables)) actionList.add(all.get(i));
+        }
+        return actionList;
+    }
+
+    /**
+     * @return the Actions connected to the given node, sorted by their order.
+     * The same list is returned until one of the built nodes leaves the cache of the graph,
+     * and it must not be modified.
+     */
+    synchronized ActionList getActionList(int index) {
+        int removed = graph.getBuiltNodesRemoved();
+        ActionList actionList = actionLists[index];
+        if (actionList != null && actionListsRemoved[index] == removed) return actionList;
+        int[] edges = getSortedEdges(index);
+        actionList = new ActionList();
+        for (int e : edges) actionList.add((Action) resolve(targets[e]));
+        // Resolving the Actions might have evicted one of them already
+        if (graph.getBuiltNodesRemoved() == removed) {
+            actionLists[index] = actionList;
+            actionListsRemoved[index] = removed;
+        }
+        return actionList;
+    }
+
+    private synchronized int[] getSortedEdges(int index) {
+        int[] edges = sortedEdges[index];
+        if (edges != null) return edges;
+        int start = offsets[index];
+        int degree = getOutDegree(index);
+        // The FlowValidator guarantees that branches are made only of Actions
+        final Action[] actions = new Action[degree];
+        List<Integer> positions = new ArrayList<>(degree);
+        for (int e = 0; e < degree; e++) {
+            actions[e] = (Action) resolve(targets[start + e]);
+            positions.add(e);
+        }
+        // The sort is stable, Actions with the same order keep the order of their connections
+        Collections.sort(positions, (a, b) -> actions[a].compareTo(actions[b]));
+        edges = new int[degree];
+        for (int e = 0; e < degree; e++) edges[e] = start + positions.get(e);
+        return sortedEdges[index] = edges;
+    }
+}
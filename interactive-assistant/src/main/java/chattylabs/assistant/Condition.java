@@ -0,0 +1,220 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * Guard of a conditional connection, compiled once from an expression such as
+ * {@code "plan == 'pro' && age >= 18"}.
+ * <p>
+ * The expression supports identifiers that read the session variables, string,
+ * number, boolean and null literals, the comparisons {@code == != < > <= >=},
+ * the operators {@code && || !} and parentheses. It is parsed into a tree of
+ * evaluators, so testing it does not parse the expression again.
+ */
+final class Condition {
+
+    private interface Expression {
+        @Nullable Object evaluate(Map<String, Object> variables);
+    }
+
+    private final String source;
+    private final Expression expression;
+
+    private Condition(String source, Expression expression) {
+        this.source     = source;
+        this.expression = expression;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the expression is not valid.
+     */
+    static Condition compile(@NonNull String source) {
+        Parser parser = new Parser(source);
+        Expression expression = parser.parseOr();
+        parser.skipSpaces();
+        if (parser.position < source.length()) throw parser.error("Unexpected character");
+        return new Condition(source, expression);
+    }
+
+    boolean test(@NonNull Map<String, Object> variables) {
+        return isTrue(expression.evaluate(variables));
+    }
+
+    @NonNull @Override
+    public String toString() {
+        return source;
+    }
+
+    private static boolean isTrue(@Nullable Object value) {
+        if (value instanceof Boolean) return (Boolean) value;
+        if (value instanceof Number) return ((Number) value).doubleValue() != 0;
+        if (value instanceof String) return !((String) value).isEmpty();
+        return value != null;
+    }
+
+    private static boolean isEqual(@Nullable Object left, @Nullable Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return ((Number) left).doubleValue() == ((Number) right).doubleValue();
+        }
+        return left == null ? right == null : left.equals(right);
+    }
+
+    /**
+     * @return the sign of the comparison, or null when the values cannot be ordered.
+     */
+    @Nullable
+    private static Integer compare(@Nullable Object left, @Nullable Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+        if (left instanceof String && right instanceof String) {
+            return ((String) left).compareTo((String) right);
+        }
+        return null;
+    }
+
+    private static final class Parser {
+        private final String source;
+        private int position;
+
+        Parser(String source) {
+            this.source = source;
+        }
+
+        Expression parseOr() {
+            Expression left = parseAnd();
+            while (consume("||")) {
+                final Expression first = left, second = parseAnd();
+                left = variables -> isTrue(first.evaluate(variables)) || isTrue(second.evaluate(variables));
+            }
+            return left;
+        }
+
+        private Expression parseAnd() {
+            Expression left = parseNot();
+            while (consume("&&")) {
+                final Expression first = left, second = parseNot();
+                left = variables -> isTrue(first.evaluate(variables)) && isTrue(second.evaluate(variables));
+            }
+            return left;
+        }
+
+        private Expression parseNot() {
+            if (!peek("!=") && consume("!")) {
+                final Expression operand = parseNot();
+                return variables -> !isTrue(operand.evaluate(variables));
+            }
+            return parseComparison();
+        }
+
+        private Expression parseComparison() {
+            final Expression left = parseOperand();
+            final Expression right;
+            if (consume("==")) {
+                right = parseOperand();
+                return variables -> isEqual(left.evaluate(variables), right.evaluate(variables));
+            } else if (consume("!=")) {
+                right = parseOperand();
+                return variables -> !isEqual(left.evaluate(variables), right.evaluate(variables));
+            } else if (consume("<=")) {
+                right = parseOperand();
+                return variables -> {
+                    Integer sign = compare(left.evaluate(variables), right.evaluate(variables));
+                    return sign != null && sign <= 0;
+                };
+            } else if (consume(">=")) {
+                right = parseOperand();
+                return variables -> {
+                    Integer sign = compare(left.evaluate(variables), right.evaluate(variables));
+                    return sign != null && sign >= 0;
+                };
+            } else if (consume("<")) {
+                right = parseOperand();
+                return variables -> {
+                    Integer sign = compare(left.evaluate(variables), right.evaluate(variables));
+                    return sign != null && sign < 0;
+                };
+            } else if (consume(">")) {
+                right = parseOperand();
+                return variables -> {
+                    Integer sign = compare(left.evaluate(variables), right.evaluate(variables));
+                    return sign != null && sign > 0;
+                };
+            }
+            return left;
+        }
+
+        private Expression parseOperand() {
+            skipSpaces();
+            if (position >= source.length()) throw error("Missing operand");
+            char c = source.charAt(position);
+            if (c == '(') {
+                position++;
+                Expression expression = parseOr();
+                if (!consume(")")) throw error("Missing ')'");
+                return expression;
+            }
+            if (c == '\'' || c == '"') {
+                int end = source.indexOf(c, position + 1);
+                if (end == -1) throw error("Unterminated string");
+                final String value = source.substring(position + 1, end);
+                position = end + 1;
+                return variables -> value;
+            }
+            if (c == '-' || Character.isDigit(c)) {
+                int start = position++;
+                while (position < source.length()
+                       && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) {
+                    position++;
+                }
+                try {
+                    final Double value = Double.valueOf(source.substring(start, position));
+                    return variables -> value;
+                } catch (NumberFormatException e) {
+                    position = start;
+                    throw error("Invalid number");
+                }
+            }
+            if (Character.isLetter(c) || c == '_') {
+                int start = position++;
+                while (position < source.length() && (Character.isLetterOrDigit(source.charAt(position))
+                       || source.charAt(position) == '_' || source.charAt(position) == '.')) {
+                    position++;
+                }
+                final String name = source.substring(start, position);
+                switch (name) {
+                    case "true": return variables -> Boolean.TRUE;
+                    case "false": return variables -> Boolean.FALSE;
+                    case "null": return variables -> null;
+                    default: return variables -> variables.get(name);
+                }
+            }
+            throw error("Unexpected character");
+        }
+
+        void skipSpaces() {
+            while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+                position++;
+            }
+        }
+
+        private boolean peek(String token) {
+            skipSpaces();
+            return source.startsWith(token, position);
+        }
+
+        private boolean consume(String token) {
+            if (!peek(token)) return false;
+            position += token.length();
+            return true;
+        }
+
+        IllegalArgumentException error(String reason) {
+            return new IllegalArgumentException(reason + " at position " + position +
+                                                " of condition [" + source + "]");
+        }
+    }
+}
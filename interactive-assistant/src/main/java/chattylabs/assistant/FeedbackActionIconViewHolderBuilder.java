@@ -1,11 +1,11 @@
 package chattylabs.assistant;
 
-import android.content.res.ColorStateList;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 
@@ -18,7 +18,11 @@ class FeedbackActionIconViewHolderBuilder implements ViewHolderBuilder {
     @Override
     public RecyclerView.ViewHolder createViewHolder(ViewGroup viewGroup, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
-        View view = inflater.inflate(viewType, viewGroup, false);
+        return createViewHolder(inflater.inflate(viewType, viewGroup, false));
+    }
+
+    @Override
+    public RecyclerView.ViewHolder createViewHolder(View view) {
         return new ChatActionIconSelectedViewHolder(view);
     }
 
@@ -35,9 +39,9 @@ class FeedbackActionIconViewHolderBuilder implements ViewHolderBuilder {
         public void onBind(ViewAdapter adapter, int position) {
             FeedbackActionIcon imageSelected = (FeedbackActionIcon) adapter.getItems().get(position);
             image.setImageResource(imageSelected.icon);
-            if (imageSelected.tintColor > 0) {
-                image.setImageTintList(ColorStateList.valueOf(imageSelected.tintColor));
-            } // TODO reset imageTintColor
+            // The tint is a color resource, and a reused row might have the tint of another icon
+            image.setImageTintList(imageSelected.tintColor != 0 ?
+                    ContextCompat.getColorStateList(image.getContext(), imageSelected.tintColor) : null);
         }
     }
 }
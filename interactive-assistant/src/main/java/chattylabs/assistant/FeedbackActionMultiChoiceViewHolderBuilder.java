@@ -8,6 +8,8 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.flexbox.FlexboxLayout;
 
+import java.util.List;
+
 
 class FeedbackActionMultiChoiceViewHolderBuilder implements ViewHolderBuilder {
 
@@ -18,12 +20,15 @@ class FeedbackActionMultiChoiceViewHolderBuilder implements ViewHolderBuilder {
     @Override
     public RecyclerView.ViewHolder createViewHolder(ViewGroup viewGroup, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
-        final ViewGroup multiOptionAction = (ViewGroup) inflater
-                .inflate(viewType, viewGroup, false);
-        return new ChatActionMultiOptionTextSelectedViewHolder(multiOptionAction);
+        return createViewHolder(inflater.inflate(viewType, viewGroup, false));
     }
 
-    static class ChatActionMultiOptionTextSelectedViewHolder extends RecyclerView.ViewHolder implements Binder {
+    @Override
+    public RecyclerView.ViewHolder createViewHolder(View view) {
+        return new ChatActionMultiOptionTextSelectedViewHolder(view);
+    }
+
+    static class ChatActionMultiOptionTextSelectedViewHolder extends RecyclerView.ViewHolder implements PayloadBinder {
 
         ViewGroup multiOptionAction;
 
@@ -37,11 +42,22 @@ class FeedbackActionMultiChoiceViewHolderBuilder implements ViewHolderBuilder {
             FeedbackActionMultiChoice optionsSelected = (FeedbackActionMultiChoice) adapter.getItems().get(position);
             multiOptionAction.getChildAt(1).setVisibility(View.GONE);
             FlexboxLayout optionsLayout = (FlexboxLayout) multiOptionAction.getChildAt(0);
-            optionsLayout.removeAllViews();
+            ActionViewPool pool = adapter.getActionViewPool();
+            pool.releaseChildren(optionsLayout);
             for (ActionChipChoice actionChipChoice : optionsSelected.actionChipChoices) {
-                optionsLayout.addView(ActionMultiChoiceViewBuilder.getOption(optionsLayout.getContext(),
-                        actionChipChoice, optionsLayout, 0, null, true));
+                optionsLayout.addView(ActionMultiChoiceViewBuilder.getOption(pool,
+                        actionChipChoice, optionsLayout, 0, null));
             }
         }
+
+        @Override
+        public boolean onBind(ViewAdapter adapter, int position, List<Object> payloads) {
+            if (!AssistantAdapter.isSelectionOnly(payloads)) return false;
+            FeedbackActionMultiChoice optionsSelected = (FeedbackActionMultiChoice) adapter.getItems().get(position);
+            FlexboxLayout optionsLayout = (FlexboxLayout) multiOptionAction.getChildAt(0);
+            if (optionsLayout.getChildCount() != optionsSelected.actionChipChoices.size()) return false;
+            ActionMultiChoiceViewBuilder.bindSelection(optionsLayout, optionsSelected.actionChipChoices);
+            return true;
+        }
     }
 }
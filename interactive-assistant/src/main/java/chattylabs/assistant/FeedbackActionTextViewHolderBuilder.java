@@ -1,6 +1,5 @@
 package chattylabs.assistant;
 
-import android.text.Spanned;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -19,7 +18,11 @@ class FeedbackActionTextViewHolderBuilder implements ViewHolderBuilder {
     @Override
     public RecyclerView.ViewHolder createViewHolder(ViewGroup viewGroup, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
-        View view = inflater.inflate(viewType, viewGroup, false);
+        return createViewHolder(inflater.inflate(viewType, viewGroup, false));
+    }
+
+    @Override
+    public RecyclerView.ViewHolder createViewHolder(View view) {
         return new ActionTextSelectedViewHolder(view);
     }
 
@@ -42,9 +45,7 @@ class FeedbackActionTextViewHolderBuilder implements ViewHolderBuilder {
             } else {
                 textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, defaultTextSize);
             }
-            Spanned span = InteractiveAssistant.formatHTML(textSelected.text);
-            CharSequence text = InteractiveAssistant.processEmoji(span);
-            textView.setText(text);
+            textView.setText(TextCache.get(null, textSelected.text));
         }
     }
 }
@@ -1,10 +1,13 @@
 package chattylabs.assistant;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 
 public class Flow implements Source, SourceId {
     private Node from;
+    @Nullable
+    private Condition condition;
     private Edge edge;
 
     Flow(Edge edge) {
@@ -14,18 +17,21 @@ public class Flow implements Source, SourceId {
     @Override
     public Target from(@NonNull Node node) {
         from = node;
+        condition = null;
         return target;
     }
 
     @Override
     public TargetId from(@NonNull String id) {
-        from = edge.getNode(id);
+        from = edge.findNode(id);
+        condition = null;
         return targetId;
     }
 
     @Override
     public TargetId from(@StringRes int id) {
-        from = edge.getNode(id);
+        from = edge.findNode(id);
+        condition = null;
         return targetId;
     }
 
@@ -33,29 +39,49 @@ public class Flow implements Source, SourceId {
         edge.start(root);
     }
 
-    private Target target = (node, optNodes) -> {
-        edge.addEdge(node, from);
-        for (Node n : optNodes) edge.addEdge(n, from);
+    private Target target = new Target() {
+        @Override
+        public Target when(@NonNull String condition) {
+            Flow.this.condition = Condition.compile(condition);
+            return this;
+        }
+
+        @Override
+        public void to(@NonNull Node node, Node... optNodes) {
+            edge.addEdge(node, from, condition);
+            for (Node n : optNodes) edge.addEdge(n, from, condition);
+        }
     };
 
     private TargetId targetId = new TargetId() {
+        @Override
+        public TargetId when(@NonNull String condition) {
+            Flow.this.condition = Condition.compile(condition);
+            return this;
+        }
+
         @Override
         public void to(@NonNull String id, String... ids) {
-            edge.addEdge(edge.getNode(id), from);
-            for (String s : ids) edge.addEdge(edge.getNode(s), from);
+            edge.addEdge(edge.findNode(id), from, condition);
+            for (String s : ids) edge.addEdge(edge.findNode(s), from, condition);
         }
 
         @Override
         public void to(@StringRes int id, @StringRes Integer... ids) {
-            edge.addEdge(edge.getNode(id), from);
-            for (int i : ids) edge.addEdge(edge.getNode(i), from);
+            edge.addEdge(edge.findNode(id), from, condition);
+            for (int i : ids) edge.addEdge(edge.findNode(i), from, condition);
         }
     };
 
     abstract static class Edge {
-        abstract Node getNode(@NonNull String id);
-        abstract Node getNode(@StringRes int id);
-        abstract void addEdge(@NonNull Node node, @NonNull Node incomingEdge);
+        abstract Node findNode(@NonNull String id);
+        abstract Node findNode(@StringRes int id);
+        abstract void addEdge(@NonNull Node node, @NonNull Node incomingEdge, @Nullable Condition condition);
+
+        void addEdge(@NonNull Node node, @NonNull Node incomingEdge) {
+            addEdge(node, incomingEdge, null);
+        }
+
         abstract void start(@NonNull Node root);
     }
 }
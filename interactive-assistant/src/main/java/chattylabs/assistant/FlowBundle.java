@@ -0,0 +1,496 @@
+package chattylabs.assistant;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Read only view over a binary flow bundle.
+ * <p>
+ * The bundle is a versioned, big endian file made of:
+ * <pre>
+ * header      magic, version, flags, root, string count, node count, edge count, property count
+ * strings     (string count + 1) offsets into the string data
+ * nodes       type, id string, first property, property count
+ * edges       (node count + 1) offsets and the target node of every edge
+ * properties  key string, type, value
+ * string data UTF-8 bytes
+ * </pre>
+ * It is meant to be memory mapped, from a file or from an uncompressed asset, so only
+ * the records of the nodes that are actually requested are ever decoded.
+ * Bundles are created with a {@link Writer}. Node properties are named after the
+ * setters of the node Builders, e.g. {@code "text"}, {@code "textSize"} or {@code "order"}.
+ * Drawables and colors are resources, stored by name since their ids change between builds.
+ */
+public final class FlowBundle {
+
+    public static final int MESSAGE_TEXT = 1;
+    public static final int MESSAGE_IMAGE = 2;
+    public static final int ACTION_TEXT = 3;
+    public static final int ACTION_ICON = 4;
+
+    static final int MAGIC = 0x49414642; // IAFB
+    static final short VERSION = 1;
+
+    static final int TYPE_STRING = 1;
+    static final int TYPE_INT = 2;
+    static final int TYPE_FLOAT = 3;
+    static final int TYPE_BOOLEAN = 4;
+    static final int TYPE_DRAWABLE = 5;
+    static final int TYPE_COLOR = 6;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int NODE_RECORD_SIZE = 16;
+    private static final int PROPERTY_RECORD_SIZE = 12;
+
+    private final Context context;
+    private final ByteBuffer buffer;
+    private final int root;
+    private final int stringCount;
+    private final int nodeCount;
+    private final int stringsOffset;
+    private final int nodesOffset;
+    private final int edgeOffsetsOffset;
+    private final int edgeTargetsOffset;
+    private final int propertiesOffset;
+    private final int stringDataOffset;
+    private final String[] strings;
+    @Nullable
+    private HashMap<String, Integer> ids;
+
+    public FlowBundle(@NonNull Context context, @NonNull ByteBuffer buffer) {
+        this.context = context.getApplicationContext();
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("The buffer does not contain a flow bundle");
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported flow bundle version " + version);
+        }
+        root               = buffer.getInt(8);
+        stringCount        = buffer.getInt(12);
+        nodeCount          = buffer.getInt(16);
+        int edgeCount      = buffer.getInt(20);
+        int propertyCount  = buffer.getInt(24);
+        stringsOffset      = HEADER_SIZE;
+        nodesOffset        = stringsOffset + (stringCount + 1) * 4;
+        edgeOffsetsOffset  = nodesOffset + nodeCount * NODE_RECORD_SIZE;
+        edgeTargetsOffset  = edgeOffsetsOffset + (nodeCount + 1) * 4;
+        propertiesOffset   = edgeTargetsOffset + edgeCount * 4;
+        stringDataOffset   = propertiesOffset + propertyCount * PROPERTY_RECORD_SIZE;
+        strings            = new String[stringCount];
+    }
+
+    /**
+     * Maps a bundle stored as a file.
+     */
+    public static FlowBundle open(@NonNull Context context, @NonNull File file) throws IOException {
+        try (FileInputStream stream = new FileInputStream(file)) {
+            FileChannel channel = stream.getChannel();
+            return new FlowBundle(context, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Maps a bundle stored as an asset. The asset must not be compressed in the APK,
+     * use {@code aaptOptions { noCompress "flow" }}.
+     */
+    public static FlowBundle open(@NonNull Context context, @NonNull String assetName) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(assetName);
+             FileInputStream stream = descriptor.createInputStream()) {
+            return new FlowBundle(context, stream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength()));
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    public int getType(int index) {
+        return buffer.getInt(nodesOffset + index * NODE_RECORD_SIZE);
+    }
+
+    public String getId(int index) {
+        return getString(buffer.getInt(nodesOffset + index * NODE_RECORD_SIZE + 4));
+    }
+
+    /**
+     * @return the index of the node or -1 if it is not part of the bundle.
+     */
+    public int indexOf(@NonNull String id) {
+        if (ids == null) {
+            HashMap<String, Integer> map = new HashMap<>(nodeCount * 2);
+            for (int i = 0; i < nodeCount; i++) map.put(getId(i), i);
+            ids = map;
+        }
+        Integer index = ids.get(id);
+        return index != null ? index : -1;
+    }
+
+    public int getOutDegree(int index) {
+        return buffer.getInt(edgeOffsetsOffset + (index + 1) * 4)
+               - buffer.getInt(edgeOffsetsOffset + index * 4);
+    }
+
+    public int getTarget(int index, int edge) {
+        return buffer.getInt(edgeTargetsOffset + (buffer.getInt(edgeOffsetsOffset + index * 4) + edge) * 4);
+    }
+
+    public boolean isAction(int index) {
+        int type = getType(index);
+        return type == ACTION_TEXT || type == ACTION_ICON;
+    }
+
+    /**
+     * Decodes the node stored at the given index.
+     */
+    public Node buildNode(int index) {
+        int record = nodesOffset + index * NODE_RECORD_SIZE;
+        int type = buffer.getInt(record);
+        String id = getString(buffer.getInt(record + 4));
+        int first = buffer.getInt(record + 8);
+        int count = buffer.getInt(record + 12);
+        switch (type) {
+            case MESSAGE_TEXT: {
+                MessageText.Builder builder = new MessageText.Builder(id);
+                for (int p = first; p < first + count; p++) {
+                    switch (getPropertyKey(p)) {
+                        case "text": builder.setText(getStringValue(p)); break;
+                        case "textSize": builder.setTextSize(getFloatValue(p)); break;
+                        case "tintColor": builder.setTintColor(getIntValue(p)); break;
+                        case "aloud": builder.setAloud(getBooleanValue(p)); break;
+                        case "firstMessage": builder.setFirstMessage(getBooleanValue(p)); break;
+                        case "inboundMessage": builder.setInboundMessage(getBooleanValue(p)); break;
+                    }
+                }
+                return builder.build();
+            }
+            case MESSAGE_IMAGE: {
+                MessageImage.Builder builder = new MessageImage.Builder(id);
+                for (int p = first; p < first + count; p++) {
+                    switch (getPropertyKey(p)) {
+                        case "image": builder.setImage(getIntValue(p)); break;
+                        case "tintColor": builder.setTintColor(getIntValue(p)); break;
+                    }
+                }
+                return builder.build();
+            }
+            case ACTION_TEXT: {
+                ActionText.Builder builder = new ActionText.Builder(id);
+                List<String> contentDescriptions = new ArrayList<>();
+                for (int p = first; p < first + count; p++) {
+                    switch (getPropertyKey(p)) {
+                        case "text": builder.setText(getStringValue(p)); break;
+                        case "textSize": builder.setTextSize(getFloatValue(p)); break;
+                        case "order": builder.setOrder(getIntValue(p)); break;
+                        case "skipTracking": builder.skipTracking(getBooleanValue(p)); break;
+                        case "skipSelected": builder.skipSelected(getBooleanValue(p)); break;
+                        case "contentDescription": contentDescriptions.add(getStringValue(p)); break;
+                    }
+                }
+                if (!contentDescriptions.isEmpty())
+                    builder.setContentDescriptions(contentDescriptions.toArray(new String[0]));
+                return builder.build();
+            }
+            case ACTION_ICON: {
+                ActionIcon.Builder builder = new ActionIcon.Builder(id);
+                List<String> contentDescriptions = new ArrayList<>();
+                for (int p = first; p < first + count; p++) {
+                    switch (getPropertyKey(p)) {
+                        case "text": builder.setText(getStringValue(p)); break;
+                        case "icon": builder.setIcon(getIntValue(p)); break;
+                        case "iconAfter": builder.setIconAfter(getIntValue(p)); break;
+                        case "tintColor": builder.setTintColor(getIntValue(p)); break;
+                        case "order": builder.setOrder(getIntValue(p)); break;
+                        case "skipTracking": builder.skipTracking(getBooleanValue(p)); break;
+                        case "skipSelected": builder.skipSelected(getBooleanValue(p)); break;
+                        case "contentDescription": contentDescriptions.add(getStringValue(p)); break;
+                    }
+                }
+                if (!contentDescriptions.isEmpty())
+                    builder.setContentDescriptions(contentDescriptions.toArray(new String[0]));
+                return builder.build();
+            }
+            default:
+                throw new IllegalStateException("Unknown node type " + type + " for [" + id + "]");
+        }
+    }
+
+    /**
+     * Adds every node and connection of the bundle to the assistant.
+     * The nodes are only built when the conversation reaches them.
+     *
+     * @return the root node of the bundle.
+     */
+    public Node install(@NonNull InteractiveAssistant assistant) {
+        for (int i = 0; i < nodeCount; i++) {
+            final int index = i;
+            assistant.addNode(getId(i), isAction(i), () -> buildNode(index));
+        }
+        Flow flow = assistant.prepare();
+        for (int i = 0; i < nodeCount; i++) {
+            int degree = getOutDegree(i);
+            if (degree == 0) continue;
+            String[] targets = new String[degree - 1];
+            for (int e = 1; e < degree; e++) targets[e - 1] = getId(getTarget(i, e));
+            flow.from(getId(i)).to(getId(getTarget(i, 0)), targets);
+        }
+        return assistant.getNode(getId(root));
+    }
+
+    private String getString(int index) {
+        String string = strings[index];
+        if (string == null) {
+            int start = buffer.getInt(stringsOffset + index * 4);
+            int end = buffer.getInt(stringsOffset + (index + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer data = buffer.duplicate();
+            data.position(stringDataOffset + start);
+            data.get(bytes);
+            strings[index] = string = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return string;
+    }
+
+    private String getPropertyKey(int property) {
+        return getString(buffer.getInt(propertiesOffset + property * PROPERTY_RECORD_SIZE));
+    }
+
+    private int getPropertyType(int property) {
+        return buffer.getInt(propertiesOffset + property * PROPERTY_RECORD_SIZE + 4);
+    }
+
+    private int getPropertyValue(int property) {
+        return buffer.getInt(propertiesOffset + property * PROPERTY_RECORD_SIZE + 8);
+    }
+
+    private String getStringValue(int property) {
+        return getString(getPropertyValue(property));
+    }
+
+    private int getIntValue(int property) {
+        switch (getPropertyType(property)) {
+            case TYPE_DRAWABLE: return getResource(property, "drawable");
+            case TYPE_COLOR: return getResource(property, "color");
+            default: return getPropertyValue(property);
+        }
+    }
+
+    private int getResource(int property, String type) {
+        return context.getResources().getIdentifier(getStringValue(property), type, context.getPackageName());
+    }
+
+    private float getFloatValue(int property) {
+        return Float.intBitsToFloat(getPropertyValue(property));
+    }
+
+    private boolean getBooleanValue(int property) {
+        return getPropertyValue(property) != 0;
+    }
+
+    /**
+     * Creates flow bundles that can be read by {@link FlowBundle}.
+     */
+    public static final class Writer {
+        private final List<NodeRecord> nodes = new ArrayList<>();
+        private final HashMap<String, Integer> ids = new HashMap<>();
+        private final List<List<String>> edges = new ArrayList<>();
+        private final List<String> strings = new ArrayList<>();
+        private final HashMap<String, Integer> stringIndices = new HashMap<>();
+        private String root;
+
+        public NodeRecord addNode(int type, @NonNull String id) {
+            if (ids.containsKey(id)) {
+                throw new IllegalArgumentException("Node [" + id + "] already exists in the bundle");
+            }
+            NodeRecord record = new NodeRecord(type, id);
+            ids.put(id, nodes.size());
+            nodes.add(record);
+            edges.add(new ArrayList<>());
+            if (root == null) root = id;
+            return record;
+        }
+
+        public Writer addEdge(@NonNull String from, @NonNull String to) {
+            Integer index = ids.get(from);
+            if (index == null) {
+                throw new IllegalArgumentException("Node [" + from + "] has not been added yet");
+            }
+            edges.get(index).add(to);
+            return this;
+        }
+
+        /**
+         * The first node added is the root unless this is set.
+         */
+        public Writer setRoot(@NonNull String id) {
+            this.root = id;
+            return this;
+        }
+
+        public void writeTo(@NonNull OutputStream outputStream) throws IOException {
+            int edgeCount = 0;
+            int propertyCount = 0;
+            for (List<String> targets : edges) edgeCount += targets.size();
+            for (NodeRecord node : nodes) {
+                intern(node.id);
+                propertyCount += node.properties.size();
+                for (Property property : node.properties) {
+                    intern(property.key);
+                    if (property.stringValue != null) intern(property.stringValue);
+                }
+            }
+            Integer rootIndex = root != null ? ids.get(root) : Integer.valueOf(0);
+            if (rootIndex == null) {
+                throw new IllegalArgumentException("Root node [" + root + "] does not exist in the bundle");
+            }
+
+            DataOutputStream out = new DataOutputStream(outputStream);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeInt(rootIndex);
+            out.writeInt(strings.size());
+            out.writeInt(nodes.size());
+            out.writeInt(edgeCount);
+            out.writeInt(propertyCount);
+            out.writeInt(0);
+
+            List<byte[]> data = new ArrayList<>(strings.size());
+            int offset = 0;
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                data.add(bytes);
+                out.writeInt(offset);
+                offset += bytes.length;
+            }
+            out.writeInt(offset);
+
+            int firstProperty = 0;
+            for (NodeRecord node : nodes) {
+                out.writeInt(node.type);
+                out.writeInt(stringIndices.get(node.id));
+                out.writeInt(firstProperty);
+                out.writeInt(node.properties.size());
+                firstProperty += node.properties.size();
+            }
+
+            int edgeOffset = 0;
+            for (List<String> targets : edges) {
+                out.writeInt(edgeOffset);
+                edgeOffset += targets.size();
+            }
+            out.writeInt(edgeOffset);
+            for (List<String> targets : edges) {
+                for (String target : targets) {
+                    Integer index = ids.get(target);
+                    if (index == null) {
+                        throw new IllegalArgumentException("Node [" + target + "] does not exist in the bundle");
+                    }
+                    out.writeInt(index);
+                }
+            }
+
+            for (NodeRecord node : nodes) {
+                for (Property property : node.properties) {
+                    out.writeInt(stringIndices.get(property.key));
+                    out.writeInt(property.type);
+                    out.writeInt(property.stringValue != null ?
+                            stringIndices.get(property.stringValue) : property.value);
+                }
+            }
+
+            for (byte[] bytes : data) out.write(bytes);
+            out.flush();
+        }
+
+        private void intern(String string) {
+            if (!stringIndices.containsKey(string)) {
+                stringIndices.put(string, strings.size());
+                strings.add(string);
+            }
+        }
+    }
+
+    public static final class NodeRecord {
+        final int type;
+        final String id;
+        final List<Property> properties = new ArrayList<>();
+
+        NodeRecord(int type, String id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        public NodeRecord put(@NonNull String key, @NonNull String value) {
+            properties.add(new Property(key, TYPE_STRING, 0, value));
+            return this;
+        }
+
+        public NodeRecord put(@NonNull String key, int value) {
+            properties.add(new Property(key, TYPE_INT, value, null));
+            return this;
+        }
+
+        public NodeRecord put(@NonNull String key, float value) {
+            properties.add(new Property(key, TYPE_FLOAT, Float.floatToIntBits(value), null));
+            return this;
+        }
+
+        public NodeRecord put(@NonNull String key, boolean value) {
+            properties.add(new Property(key, TYPE_BOOLEAN, value ? 1 : 0, null));
+            return this;
+        }
+
+        /**
+         * Drawables are stored by name and resolved when the node is built.
+         */
+        public NodeRecord putDrawable(@NonNull String key, @NonNull String drawableName) {
+            properties.add(new Property(key, TYPE_DRAWABLE, 0, drawableName));
+            return this;
+        }
+
+        /**
+         * Colors are resources as well, stored by name and resolved when the node is built.
+         */
+        public NodeRecord putColor(@NonNull String key, @NonNull String colorName) {
+            properties.add(new Property(key, TYPE_COLOR, 0, colorName));
+            return this;
+        }
+    }
+
+    static final class Property {
+        final String key;
+        final int type;
+        final int value;
+        @Nullable
+        final String stringValue;
+
+        Property(String key, int type, int value, @Nullable String stringValue) {
+            this.key = key;
+            this.type = type;
+            this.value = value;
+            this.stringValue = stringValue;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Directed graph of {@link Node}s that keeps the edges indexed in both directions,
+ * so incoming and outgoing edges of a node are returned in O(degree).
+ * Nodes implementing {@link HasId} are also indexed by their id.
+ * <p>
+ * A {@link LazyNode} stands for a node that is built on demand; the built nodes
+ * are kept in a bounded cache and built again if they are evicted.
+ * <p>
+ * The graph only holds the definition of the flow, so one instance can be shared by
+ * several {@link InteractiveAssistant}s through {@link InteractiveAssistant.IOptional#withFlowGraph(FlowGraph)}
+ * while every assistant keeps its own current node, visited nodes and transcript.
+ * Nodes that keep the state of the session displaying them, the ones implementing
+ * {@link CanHandleState} such as an {@link ActionMultiChoice}, and the {@link AutoCompleteAction}s,
+ * cannot be part of a shared graph, and an {@link IllegalStateException} is thrown when they meet.
+ * The size of the node cache is the one given to the graph, not the one of the sessions.
+ * A shared graph cannot be updated, since only the session updating it would bind the changes.
+ * Access to the graph is synchronized, since sessions may load modules or build nodes
+ * from different threads.
+ */
+public final class FlowGraph {
+
+    static final int DEFAULT_NODE_CACHE_SIZE = 128;
+
+    // Hash based maps keep the insertion of every node and edge in O(1)
+    private final LinkedHashMap<Node, ArrayList<Node>> incoming = new LinkedHashMap<>();
+    private final HashMap<Node, ArrayList<Node>> outgoing = new HashMap<>();
+    private final HashMap<String, Node> ids = new HashMap<>();
+    // Conditions of the connections that have one, by source and target
+    private final HashMap<Node, HashMap<Node, Condition>> conditions = new HashMap<>();
+    @Nullable
+    private CompiledFlow compiled;
+    private final LruCache<String, Node> builtNodes;
+    // Incremented every time a built node leaves the cache, so the Actions kept from it are resolved again
+    private int builtNodesRemoved;
+    // Number of assistants running on this graph
+    private int sessions;
+
+    public FlowGraph() {
+        this(DEFAULT_NODE_CACHE_SIZE);
+    }
+
+    /**
+     * @param nodeCacheSize the maximum number of lazy nodes kept built at the same time.
+     */
+    public FlowGraph(int nodeCacheSize) {
+        builtNodes = new LruCache<String, Node>(nodeCacheSize) {
+            @Override
+            protected void entryRemoved(boolean evicted, @NonNull String key,
+                                        @NonNull Node oldValue, @Nullable Node newValue) {
+                builtNodesRemoved++;
+            }
+        };
+    }
+
+    /**
+     * @return a number that changes every time a built node leaves the cache.
+     */
+    synchronized int getBuiltNodesRemoved() {
+        return builtNodesRemoved;
+    }
+
+    synchronized void addNode(@NonNull Node node) {
+        if (sessions > 1) checkShareable(node);
+        if (node instanceof HasId) {
+            String id = ((HasId) node).getId();
+            Node existing = ids.get(id);
+            if (existing == node) return;
+            if (existing != null) {
+                throw new IllegalArgumentException("Node [" + id + "] already exists in the graph. " +
+                                                   "Every node must have a unique id.");
+            }
+            ids.put(id, node);
+        }
+        if (!incoming.containsKey(node)) {
+            compiled = null;
+            incoming.put(node, null);
+            outgoing.put(node, null);
+        }
+    }
+
+    synchronized void attach() {
+        if (sessions > 0) {
+            for (Node node : incoming.keySet()) checkShareable(node);
+            for (Node node : builtNodes.snapshot().values()) checkShareable(node);
+        }
+        sessions++;
+    }
+
+    /**
+     * Fails if the node keeps the state of the session displaying it while the graph is shared,
+     * since every session would display and change the same selection or view.
+     */
+    private void checkShareable(@NonNull Node node) {
+        if (!(node instanceof CanHandleState || node instanceof AutoCompleteAction)) return;
+        String name = node instanceof HasId ? ((HasId) node).getId() : node.getClass().getSimpleName();
+        throw new IllegalStateException("Node [" + name + "] keeps the state of its session " +
+                                        "and cannot be part of a shared flow graph");
+    }
+
+    /**
+     * @return whether no assistant runs on this graph anymore.
+     */
+    synchronized boolean detach() {
+        if (sessions > 0) sessions--;
+        return sessions == 0;
+    }
+
+    /**
+     * @return whether more than one assistant runs on this graph.
+     */
+    synchronized boolean isShared() {
+        return sessions > 1;
+    }
+
+    @Nullable
+    synchronized Node getNode(@NonNull String id) {
+        return ids.get(id);
+    }
+
+    boolean contains(@NonNull Node node) {
+        return find(node) != null;
+    }
+
+    /**
+     * @return the instance stored in the graph for the given node, or null if it was not added.
+     */
+    @Nullable
+    synchronized Node find(@NonNull Node node) {
+        if (node instanceof HasId) return ids.get(((HasId) node).getId());
+        return incoming.containsKey(node) ? node : null;
+    }
+
+    /**
+     * @return the given node, or the node it stands for if it is a {@link LazyNode}.
+     */
+    synchronized Node resolve(@NonNull Node node) {
+        if (!(node instanceof LazyNode)) return node;
+        LazyNode lazyNode = (LazyNode) node;
+        Node builtNode = builtNodes.get(lazyNode.id);
+        if (builtNode == null) {
+            builtNode = lazyNode.factory.create();
+            if (!(builtNode instanceof HasId) || !lazyNode.id.equals(((HasId) builtNode).getId())) {
+                throw new IllegalStateException("The node built for [" + lazyNode.id + "] " +
+                                                "must have the same id");
+            }
+            if (sessions > 1) checkShareable(builtNode);
+            builtNodes.put(lazyNode.id, builtNode);
+        }
+        return builtNode;
+    }
+
+    /**
+     * Connects {@code from} to {@code node}. Both nodes must be already in the graph.
+     */
+    synchronized void addEdge(@NonNull Node node, @NonNull Node from) {
+        addEdge(node, from, null);
+    }
+
+    /**
+     * Connects {@code from} to {@code node}, only followed when the condition is true.
+     */
+    synchronized void addEdge(@NonNull Node node, @NonNull Node from, @Nullable Condition condition) {
+        compiled = null;
+        HashMap<Node, Condition> guards = conditions.get(from);
+        if (condition != null) {
+            if (guards == null) {
+                guards = new HashMap<>();
+                conditions.put(from, guards);
+            }
+            guards.put(node, condition);
+        } else if (guards != null) {
+            guards.remove(node);
+        }
+        ArrayList<Node> edges = incoming.get(node);
+        if (edges == null) {
+            edges = new ArrayList<>();
+            incoming.put(node, edges);
+        }
+        edges.add(from);
+
+        ArrayList<Node> targets = outgoing.get(from);
+        if (targets == null) {
+            targets = new ArrayList<>();
+            outgoing.put(from, targets);
+        }
+        // The same connection declared twice still leads to one single target
+        if (!targets.contains(node)) targets.add(node);
+    }
+
+    @Nullable
+    synchronized ArrayList<Node> getIncomingEdges(@NonNull Node node) {
+        return incoming.get(node);
+    }
+
+    @Nullable
+    synchronized Condition getCondition(@NonNull Node from, @NonNull Node node) {
+        HashMap<Node, Condition> guards = conditions.get(from);
+        return guards != null ? guards.get(node) : null;
+    }
+
+    @Nullable
+    synchronized ArrayList<Node> getOutgoingEdges(@NonNull Node node) {
+        return outgoing.get(node);
+    }
+
+    synchronized int size() {
+        return incoming.size();
+    }
+
+    /**
+     * @return the nodes of the graph in insertion order.
+     */
+    Set<Node> nodes() {
+        return incoming.keySet();
+    }
+
+    /**
+     * Freezes the current state of the graph into a {@link CompiledFlow}.
+     * The result is cached until the graph changes again.
+     */
+    synchronized CompiledFlow compile() {
+        if (compiled == null) compiled = new CompiledFlow(this);
+        return compiled;
+    }
+
+    /**
+     * Replaces the nodes and edges of this graph with the ones of the given graph.
+     * Nodes are matched by id, and the current instance is kept when its content did not change,
+     * taking over the callbacks of the new one.
+     *
+     * @return the ids of the nodes that were replaced or removed.
+     */
+    synchronized Set<String> update(@NonNull FlowGraph source) {
+        Set<String> changed = new HashSet<>();
+        HashMap<String, Node> previous = new HashMap<>(ids);
+        HashMap<Node, Node> stored = new HashMap<>(source.size() * 2);
+        for (Node node : source.nodes()) {
+            Node kept = node;
+            if (node instanceof HasId) {
+                String id = ((HasId) node).getId();
+                Node old = previous.remove(id);
+                if (old != null && NodeContent.same(old, node) && sameBuiltNode(old, node)) {
+                    NodeContent.takeCallbacks(old, node);
+                    kept = old;
+                } else if (old != null) changed.add(id);
+            }
+            stored.put(node, kept);
+        }
+        changed.addAll(previous.keySet());
+        for (String id : changed) builtNodes.remove(id);
+
+        compiled = null;
+        ids.clear();
+        incoming.clear();
+        outgoing.clear();
+        conditions.clear();
+        for (Node node : source.nodes()) addNode(stored.get(node));
+        for (Node node : source.nodes()) {
+            ArrayList<Node> targets = source.getOutgoingEdges(node);
+            if (targets == null) continue;
+            for (int i = 0, size = targets.size(); i < size; i++) {
+                Node target = targets.get(i);
+                addEdge(stored.get(target), stored.get(node), source.getCondition(node, target));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Adds the nodes and edges of the given graph, which also holds the nodes of this graph
+     * it connects to. Nothing is added when one of its nodes cannot be added.
+     */
+    synchronized void merge(@NonNull FlowGraph staged) {
+        for (Node node : staged.nodes()) {
+            Node existing = find(node);
+            if (existing != null && existing != node) {
+                throw new IllegalArgumentException("Node [" + ((HasId) node).getId() + "] already exists " +
+                                                   "in the graph. Every node must have a unique id.");
+            }
+            if (existing == null && sessions > 1) checkShareable(node);
+        }
+        for (Node node : staged.nodes()) addNode(node);
+        for (Node node : staged.nodes()) {
+            ArrayList<Node> targets = staged.getOutgoingEdges(node);
+            if (targets == null) continue;
+            for (int i = 0, size = targets.size(); i < size; i++) {
+                addEdge(targets.get(i), node, staged.getCondition(node, targets.get(i)));
+            }
+        }
+        // The nodes built while staging are the ones already handed out
+        for (Map.Entry<String, Node> built : staged.builtNodes.snapshot().entrySet()) {
+            if (builtNodes.get(built.getKey()) == null) builtNodes.put(built.getKey(), built.getValue());
+        }
+    }
+
+    /**
+     * Compares the node already built for a {@link LazyNode} with the one its new factory builds,
+     * taking over the new callbacks when they are the same.
+     */
+    private boolean sameBuiltNode(@NonNull Node old, @NonNull Node node) {
+        if (!(old instanceof LazyNode)) return true;
+        Node builtNode = builtNodes.get(((LazyNode) old).id);
+        if (builtNode == null) return true;
+        Node rebuilt = ((LazyNode) node).factory.create();
+        if (!NodeContent.same(builtNode, rebuilt)) return false;
+        NodeContent.takeCallbacks(builtNode, rebuilt);
+        return true;
+    }
+
+    synchronized void clear() {
+        compiled = null;
+        builtNodes.evictAll();
+        ids.clear();
+        incoming.clear();
+        outgoing.clear();
+        conditions.clear();
+    }
+}
@@ -0,0 +1,416 @@
+package chattylabs.assistant;
+
+import android.content.Context;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads a flow definition written in JSON into an {@link InteractiveAssistant}.
+ * <pre>
+ * {
+ *   "root": "WELCOME_ID",
+ *   "nodes": [
+ *     { "type": "MessageText", "id": "WELCOME_ID", "text": "Hi!" },
+ *     { "type": "ActionText", "id": "OK_ID", "text": "Ok", "order": 1 }
+ *   ],
+ *   "edges": [
+ *     { "from": "WELCOME_ID", "to": ["OK_ID"] },
+ *     { "from": "OK_ID", "when": "plan == 'pro'", "to": "BILLING" }
+ *   ]
+ * }
+ * </pre>
+ * The document is read with a streaming tokenizer: every node is added to the assistant
+ * as soon as its object is read, so only one node is held in memory at a time.
+ * Node properties are named after the setters of the node Builders. Drawables and colors
+ * are resources referenced by name, such as {@code "accent"} or {@code "android:color/white"}.
+ * The supported types are MessageText, MessageImage, ActionText, ActionIcon,
+ * ActionMultiChoice, ActionSeekBar and AutoCompleteAction.
+ * <p>
+ * A node of type Module, e.g. {@code { "type": "Module", "id": "BILLING", "asset": "billing.json" }},
+ * is a sub-flow read from another definition when the conversation first enters it,
+ * see {@link InteractiveAssistant#addModule(String, FlowModule)}. The definition is read from
+ * the source set with {@link #setModuleSource(String, ModuleSource)}, or else from the asset.
+ */
+public final class FlowJsonLoader {
+
+    private final Context context;
+    private final HashMap<String, Action.OnSelected> onSelectedListeners = new HashMap<>();
+    private final HashMap<String, ModuleSource> moduleSources = new HashMap<>();
+
+    /**
+     * Opens the definition of a module.
+     */
+    public interface ModuleSource {
+        @NonNull Reader open() throws IOException;
+    }
+
+    public FlowJsonLoader(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Callbacks cannot be described in JSON, they are attached by node id.
+     */
+    public FlowJsonLoader setOnSelected(@NonNull String id, @NonNull Action.OnSelected onSelected) {
+        onSelectedListeners.put(id, onSelected);
+        return this;
+    }
+
+    /**
+     * Sets where the definition of the module with the given id is read from.
+     */
+    public FlowJsonLoader setModuleSource(@NonNull String id, @NonNull ModuleSource source) {
+        moduleSources.put(id, source);
+        return this;
+    }
+
+    public Node load(@NonNull InteractiveAssistant assistant, @NonNull InputStream inputStream) throws IOException {
+        return load(assistant, new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Adds every node and connection of the definition to the assistant.
+     *
+     * @return the root node, or the first node when no root is defined.
+     */
+    public Node load(@NonNull InteractiveAssistant assistant, @NonNull Reader in) throws IOException {
+        String root = null;
+        String firstNode = null;
+        boolean nodesLoaded = false;
+        // Edges declared before the nodes are kept until the nodes exist
+        List<Edge> pendingEdges = new ArrayList<>();
+        Flow flow = assistant.prepare();
+
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "root":
+                        root = reader.nextString();
+                        break;
+                    case "nodes":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            String id = addNode(assistant, readObject(reader));
+                            if (firstNode == null) firstNode = id;
+                        }
+                        reader.endArray();
+                        nodesLoaded = true;
+                        for (Edge edge : pendingEdges) connect(flow, edge);
+                        pendingEdges.clear();
+                        break;
+                    case "edges":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            Edge edge = readEdge(reader);
+                            if (nodesLoaded) connect(flow, edge);
+                            else pendingEdges.add(edge);
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        for (Edge edge : pendingEdges) connect(flow, edge);
+        if (root == null) root = firstNode;
+        if (root == null) throw new IllegalArgumentException("The flow definition has no nodes");
+        return assistant.getNode(root);
+    }
+
+    private static void connect(Flow flow, Edge edge) {
+        TargetId target = flow.from(edge.from);
+        if (edge.when != null) target.when(edge.when);
+        target.to(edge.to.get(0), edge.to.subList(1, edge.to.size()).toArray(new String[0]));
+    }
+
+    private static final class Edge {
+        final String from;
+        @Nullable
+        final String when;
+        final List<String> to;
+
+        Edge(String from, @Nullable String when, List<String> to) {
+            this.from = from;
+            this.when = when;
+            this.to = to;
+        }
+    }
+
+    private static Edge readEdge(JsonReader reader) throws IOException {
+        String from = null;
+        String when = null;
+        List<String> to = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "from":
+                    from = reader.nextString();
+                    break;
+                case "when":
+                    when = reader.nextString();
+                    break;
+                case "to":
+                    if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                        while (reader.hasNext()) to.add(reader.nextString());
+                        reader.endArray();
+                    } else to.add(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (from == null || to.isEmpty()) {
+            throw new IllegalArgumentException("Edges require \"from\" and \"to\" properties");
+        }
+        return new Edge(from, when, to);
+    }
+
+    // The properties of a single node, numbers are kept as their literal
+    private static Map<String, Object> readObject(JsonReader reader) throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            properties.put(reader.nextName(), readValue(reader));
+        }
+        reader.endObject();
+        return properties;
+    }
+
+    @Nullable
+    private static Object readValue(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY:
+                List<Object> values = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) values.add(readValue(reader));
+                reader.endArray();
+                return values;
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                return reader.nextString();
+        }
+    }
+
+    /**
+     * @return the id of the node added.
+     */
+    private String addNode(InteractiveAssistant assistant, Map<String, Object> properties) {
+        String id = getId(properties);
+        if ("Module".equals(getString(properties, "type"))) {
+            ModuleSource source = getModuleSource(id, getString(properties, "asset"));
+            assistant.addModule(id, module -> {
+                try {
+                    return load(module, source.open());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Module [" + id + "] could not be read", e);
+                }
+            });
+        } else {
+            assistant.addNode(buildNode(properties));
+        }
+        return id;
+    }
+
+    private ModuleSource getModuleSource(String id, @Nullable String asset) {
+        ModuleSource source = moduleSources.get(id);
+        if (source != null) return source;
+        if (asset == null) {
+            throw new IllegalArgumentException("Module [" + id + "] requires an \"asset\" property " +
+                                               "or a source set with setModuleSource");
+        }
+        return () -> new InputStreamReader(context.getAssets().open(asset), StandardCharsets.UTF_8);
+    }
+
+    private Node buildNode(Map<String, Object> properties) {
+        String type = getString(properties, "type");
+        if (type == null) throw new IllegalArgumentException("Nodes require a \"type\" property");
+        switch (type) {
+            case "MessageText":
+                return new MessageText.Builder(getId(properties))
+                        .setText(getString(properties, "text"))
+                        .setTextSize(getFloat(properties, "textSize"))
+                        .setTintColor(getColor(properties, "tintColor"))
+                        .setAloud(getBoolean(properties, "aloud"))
+                        .setFirstMessage(getBoolean(properties, "firstMessage"))
+                        .setInboundMessage(getBoolean(properties, "inboundMessage"))
+                        .build();
+            case "MessageImage":
+                return new MessageImage.Builder(getId(properties))
+                        .setImage(getDrawable(properties, "image"))
+                        .setTintColor(getColor(properties, "tintColor"))
+                        .build();
+            case "ActionText":
+                return buildActionText(properties);
+            case "ActionIcon":
+                return new ActionIcon.Builder(getId(properties))
+                        .setIcon(getDrawable(properties, "icon"))
+                        .setIconAfter(getDrawable(properties, "iconAfter"))
+                        .setText(getString(properties, "text"))
+                        .setTintColor(getColor(properties, "tintColor"))
+                        .setContentDescriptions(getStrings(properties, "contentDescriptions"))
+                        .setOrder(getInt(properties, "order"))
+                        .setOnSelected(onSelectedListeners.get(getId(properties)))
+                        .skipTracking(getBoolean(properties, "skipTracking"))
+                        .skipSelected(getBoolean(properties, "skipSelected"))
+                        .build();
+            case "ActionMultiChoice": {
+                ActionMultiChoice.Builder builder = new ActionMultiChoice.Builder(getId(properties))
+                        .setConfirmationAction(getConfirmationAction(properties))
+                        .skipTracking(getBoolean(properties, "skipTracking"))
+                        .skipSelected(getBoolean(properties, "skipSelected"));
+                for (Map<String, Object> option : getObjects(properties, "options")) {
+                    builder.addOption(new ActionChipChoice.Builder(getId(option))
+                            .setText(getString(option, "text"))
+                            .setIcon(getDrawable(option, "icon"))
+                            .setIconTintColor(getColor(option, "iconTintColor"))
+                            .setTextSize(getFloat(option, "textSize"))
+                            .setContentDescriptions(getStrings(option, "contentDescriptions"))
+                            .setOrder(getInt(option, "order"))
+                            .build());
+                }
+                return builder.build();
+            }
+            case "ActionSeekBar":
+                return new ActionSeekBar.Builder(getId(properties))
+                        .setConfirmationAction(getConfirmationAction(properties))
+                        .setMaxProgress(getInt(properties, "maxProgress"))
+                        .setProgress(getInt(properties, "progress"))
+                        .skipTracking(getBoolean(properties, "skipTracking"))
+                        .skipSelected(getBoolean(properties, "skipSelected"))
+                        .build();
+            case "AutoCompleteAction": {
+                AutoCompleteAction.Builder builder = new AutoCompleteAction.Builder(getId(properties))
+                        .setTextSize(getFloat(properties, "textSize"))
+                        .setTextLines(getInt(properties, "textLines"))
+                        .setCharCount(getInt(properties, "charCount"))
+                        .setOrder(getInt(properties, "order"))
+                        .skipTracking(getBoolean(properties, "skipTracking"))
+                        .skipSelected(getBoolean(properties, "skipSelected"));
+                String[] hints = getStrings(properties, "hints");
+                if (hints != null) {
+                    List<String> list = new ArrayList<>(hints.length);
+                    for (String hint : hints) list.add(hint);
+                    builder.addHints(list);
+                }
+                for (Map<String, Object> action : getObjects(properties, "actions")) {
+                    builder.addAction(buildActionText(action));
+                }
+                return builder.build();
+            }
+            default:
+                throw new IllegalArgumentException("Unknown node type \"" + type + "\"");
+        }
+    }
+
+    private ActionText buildActionText(Map<String, Object> properties) {
+        return new ActionText.Builder(getId(properties))
+                .setText(getString(properties, "text"))
+                .setTextSize(getFloat(properties, "textSize"))
+                .setContentDescriptions(getStrings(properties, "contentDescriptions"))
+                .setOrder(getInt(properties, "order"))
+                .setOnSelected(onSelectedListeners.get(getId(properties)))
+                .skipTracking(getBoolean(properties, "skipTracking"))
+                .skipSelected(getBoolean(properties, "skipSelected"))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ActionText getConfirmationAction(Map<String, Object> properties) {
+        Object confirmation = properties.get("confirmationAction");
+        if (!(confirmation instanceof Map)) {
+            throw new IllegalArgumentException("Node [" + getId(properties) + "] requires a " +
+                                               "\"confirmationAction\" object");
+        }
+        return buildActionText((Map<String, Object>) confirmation);
+    }
+
+    private static String getId(Map<String, Object> properties) {
+        String id = getString(properties, "id");
+        if (id == null) throw new IllegalArgumentException("Nodes require an \"id\" property");
+        return id;
+    }
+
+    @Nullable
+    private static String getString(Map<String, Object> properties, String key) {
+        Object value = properties.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    private static int getInt(Map<String, Object> properties, String key) {
+        String value = getString(properties, key);
+        return value != null ? Integer.parseInt(value) : 0;
+    }
+
+    private static float getFloat(Map<String, Object> properties, String key) {
+        String value = getString(properties, key);
+        return value != null ? Float.parseFloat(value) : 0;
+    }
+
+    private static boolean getBoolean(Map<String, Object> properties, String key) {
+        Object value = properties.get(key);
+        return value instanceof Boolean ? (Boolean) value : value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    private int getColor(Map<String, Object> properties, String key) {
+        return getResource(properties, key, "color");
+    }
+
+    private int getDrawable(Map<String, Object> properties, String key) {
+        return getResource(properties, key, "drawable");
+    }
+
+    private int getResource(Map<String, Object> properties, String key, String type) {
+        String name = getString(properties, key);
+        if (name == null) return 0;
+        int id = context.getResources().getIdentifier(name, type, context.getPackageName());
+        if (id == 0) throw new IllegalArgumentException("There is no " + type + " named \"" + name + "\"");
+        return id;
+    }
+
+    @Nullable
+    private static String[] getStrings(Map<String, Object> properties, String key) {
+        Object value = properties.get(key);
+        if (!(value instanceof List)) return null;
+        List<?> list = (List<?>) value;
+        String[] strings = new String[list.size()];
+        for (int i = 0; i < strings.length; i++) strings[i] = String.valueOf(list.get(i));
+        return strings;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> getObjects(Map<String, Object> properties, String key) {
+        Object value = properties.get(key);
+        List<Map<String, Object>> objects = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item instanceof Map) objects.add((Map<String, Object>) item);
+            }
+        }
+        return objects;
+    }
+}
@@ -0,0 +1,19 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A part of the conversation that is only loaded when the flow first enters it.
+ * <p>
+ * Modules are registered by name with {@link InteractiveAssistant#addModule(String, FlowModule)}
+ * and connected like any other node, using their name as id.
+ */
+public interface FlowModule {
+
+    /**
+     * Adds the nodes of the module to the assistant and connects them.
+     *
+     * @return the node the module starts with, it must not be an {@link Action}.
+     */
+    @NonNull Node load(@NonNull InteractiveAssistant assistant);
+}
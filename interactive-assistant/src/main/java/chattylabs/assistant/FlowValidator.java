@@ -0,0 +1,169 @@
+package chattylabs.assistant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks the structure of a {@link CompiledFlow} before it is started.
+ * <p>
+ * It runs in O(N + E) and reports, all at once:
+ * <ul>
+ *     <li>Actions with more than one connection</li>
+ *     <li>Actions connected to another Action</li>
+ *     <li>Actions with a conditional connection</li>
+ *     <li>branches that mix Actions and Messages</li>
+ *     <li>branches of Messages with more than one connection without condition</li>
+ *     <li>cycles the conversation can never leave</li>
+ * </ul>
+ * Connections to ids that do not exist are rejected earlier, by {@link Flow}.
+ * <p>
+ * Nodes that cannot be reached from the root are only returned as warnings,
+ * since they can still be displayed with {@link InteractiveAssistant#next(Node)}.
+ */
+final class FlowValidator {
+
+    private FlowValidator() {}
+
+    /**
+     * @return the warnings found in the flow, empty when there are none.
+     * @throws IllegalStateException describing every problem found in the flow.
+     */
+    static List<String> validate(CompiledFlow flow, int root) {
+        List<String> errors = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        int size = flow.size();
+
+        for (int i = 0; i < size; i++) {
+            int degree = flow.getOutDegree(i);
+            if (flow.isAction(i)) {
+                if (degree > 1) {
+                    errors.add("Action [" + name(flow, i) + "] cannot have multiple connections");
+                } else if (degree == 1 && flow.isAction(flow.getTarget(i, 0))) {
+                    errors.add("Action [" + name(flow, i) + "] can only be connected to a Message");
+                } else if (degree == 1 && flow.getCondition(i, 0) != null) {
+                    errors.add("Action [" + name(flow, i) + "] cannot have a conditional connection");
+                }
+            } else if (degree > 1) {
+                boolean actions = flow.isAction(flow.getTarget(i, 0));
+                int unconditional = 0;
+                for (int e = 0; e < degree; e++) {
+                    boolean action = flow.isAction(flow.getTarget(i, e));
+                    if (action != actions) {
+                        errors.add("Node [" + name(flow, i) + "] mixes Actions and Messages. " +
+                                   "Only Actions can represent several edges in the graph");
+                        break;
+                    }
+                    if (!action && flow.getCondition(i, e) == null) unconditional++;
+                }
+                if (unconditional > 1) {
+                    errors.add("Node [" + name(flow, i) + "] has several connections without condition. " +
+                               "Only Actions or conditional connections can represent several edges in the graph");
+                }
+            }
+        }
+
+        int[] components = findComponents(flow, root);
+        for (int i = 0; i < size; i++) {
+            if (components[i] == -1) {
+                warnings.add("Node [" + name(flow, i) + "] cannot be reached from [" + name(flow, root) + "]");
+            }
+        }
+
+        // A cycle is a component with more than one node or a node connected to itself
+        int[] componentSize = new int[size];
+        boolean[] hasExit = new boolean[size];
+        boolean[] hasSelfLoop = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            int component = components[i];
+            if (component == -1) continue;
+            componentSize[component]++;
+            for (int e = 0, degree = flow.getOutDegree(i); e < degree; e++) {
+                int target = flow.getTarget(i, e);
+                if (components[target] != component) hasExit[component] = true;
+                else if (target == i) hasSelfLoop[component] = true;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            int component = components[i];
+            if (component == -1 || hasExit[component]) continue;
+            if (componentSize[component] > 1 || hasSelfLoop[component]) {
+                errors.add("Node [" + name(flow, i) + "] is part of a cycle without exit");
+                // Report every cycle only once
+                hasExit[component] = true;
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            StringBuilder message = new StringBuilder("The Flow is not valid:");
+            for (String error : errors) message.append("\n - ").append(error);
+            throw new IllegalStateException(message.toString());
+        }
+        return warnings;
+    }
+
+    /**
+     * Iterative Tarjan's algorithm over the nodes reachable from the root.
+     *
+     * @return the strongly connected component of every node, or -1 when not reachable.
+     */
+    private static int[] findComponents(CompiledFlow flow, int root) {
+        int size = flow.size();
+        int[] components = new int[size];
+        Arrays.fill(components, -1);
+        if (root == -1) return components;
+
+        int[] order = new int[size];
+        int[] low = new int[size];
+        Arrays.fill(order, -1);
+        boolean[] onStack = new boolean[size];
+        int[] stack = new int[size];
+        int[] path = new int[size];
+        int[] nextEdge = new int[size];
+        int stackSize = 0;
+        int pathSize = 0;
+        int counter = 0;
+        int componentCount = 0;
+
+        path[pathSize++] = root;
+        order[root] = low[root] = counter++;
+        stack[stackSize++] = root;
+        onStack[root] = true;
+
+        while (pathSize > 0) {
+            int node = path[pathSize - 1];
+            if (nextEdge[node] < flow.getOutDegree(node)) {
+                int target = flow.getTarget(node, nextEdge[node]++);
+                if (order[target] == -1) {
+                    order[target] = low[target] = counter++;
+                    stack[stackSize++] = target;
+                    onStack[target] = true;
+                    path[pathSize++] = target;
+                } else if (onStack[target]) {
+                    low[node] = Math.min(low[node], order[target]);
+                }
+            } else {
+                pathSize--;
+                if (pathSize > 0) {
+                    int parent = path[pathSize - 1];
+                    low[parent] = Math.min(low[parent], low[node]);
+                }
+                if (low[node] == order[node]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        components[member] = componentCount;
+                    } while (member != node);
+                    componentCount++;
+                }
+            }
+        }
+        return components;
+    }
+
+    private static String name(CompiledFlow flow, int index) {
+        Node node = flow.nodeAt(index);
+        return node instanceof HasId ? ((HasId) node).getId() : node.getClass().getSimpleName();
+    }
+}
@@ -46,6 +46,13 @@ public interface InteractiveAssistant {
         IOptional withVoiceComponent(ConversationalFlow voiceComponent);
         IOptional withFontRequest(FontRequest fontRequest);
         IOptional withLastStateEnabled(boolean enable);
+        IOptional withNodeCacheSize(int size);
+        IOptional withFlowGraph(FlowGraph flowGraph);
+        IOptional withSessionId(String sessionId);
+        IOptional withScheduler(Scheduler scheduler);
+        IOptional withPacingPolicy(PacingPolicy pacingPolicy);
+        IOptional withDiffingEnabled(boolean enable);
+        IOptional withPreInflation(int count);
         InteractiveAssistant build();
     }
 
@@ -57,6 +64,17 @@ public interface InteractiveAssistant {
         FontRequest fontRequest;
 
         boolean withLastStateEnabled;
+        boolean diffingEnabled;
+        int preInflationCount;
+        @Nullable
+        Integer nodeCacheSize;
+        @Nullable
+        FlowGraph flowGraph;
+        @Nullable
+        String sessionId;
+        Scheduler scheduler = Scheduler.mainThread();
+        PacingPolicy pacingPolicy = PacingPolicy.readingSpeed(
+                ReadingSpeedPacingPolicy.DEFAULT_CHARACTERS_PER_SECOND);
 
         public IOptional withViewComponent(RecyclerView recyclerView) {
             this.recyclerView = recyclerView;
@@ -83,8 +101,59 @@ public interface InteractiveAssistant {
                 return this;
             }
 
+            @Override
+            public IOptional withNodeCacheSize(int size) {
+                Builder.this.nodeCacheSize = size;
+                return this;
+            }
+
+            @Override
+            public IOptional withFlowGraph(FlowGraph flowGraph) {
+                Builder.this.flowGraph = flowGraph;
+                return this;
+            }
+
+            @Override
+            public IOptional withSessionId(String sessionId) {
+                Builder.this.sessionId = sessionId;
+                return this;
+            }
+
+            @Override
+            public IOptional withScheduler(Scheduler scheduler) {
+                Builder.this.scheduler = scheduler;
+                return this;
+            }
+
+            @Override
+            public IOptional withPacingPolicy(PacingPolicy pacingPolicy) {
+                Builder.this.pacingPolicy = pacingPolicy;
+                return this;
+            }
+
+            @Override
+            public IOptional withDiffingEnabled(boolean enable) {
+                Builder.this.diffingEnabled = enable;
+                return this;
+            }
+
+            @Override
+            public IOptional withPreInflation(int count) {
+                Builder.this.preInflationCount = count;
+                return this;
+            }
+
             @Override
             public InteractiveAssistant build() {
+                if (flowGraph != null && sessionId == null) {
+                    // Otherwise the sessions would save and clear the same state
+                    throw new IllegalArgumentException("A session running on a shared FlowGraph " +
+                                                       "must have its own session id");
+                }
+                if (flowGraph != null && nodeCacheSize != null) {
+                    throw new IllegalArgumentException("The node cache of a shared FlowGraph " +
+                                                       "is sized when the graph is created");
+                }
                 return new InteractiveAssistantImpl(Builder.this);
             }
         };
@@ -94,8 +163,47 @@ public interface InteractiveAssistant {
 
     void addNode(@NonNull Node node);
 
+    /**
+     * Adds a node that is only built, by the given factory, when the conversation reaches it.
+     * Built nodes are kept in a cache bounded by {@link IOptional#withNodeCacheSize(int)},
+     * or by the size given to the {@link FlowGraph} set with {@link IOptional#withFlowGraph(FlowGraph)}.
+     */
+    void addNode(@NonNull String id, boolean isAction, @NonNull NodeFactory factory);
+
+    /**
+     * Adds a sub-flow that is only loaded when the conversation first enters it.
+     * The module is connected using its name as the node id.
+     */
+    void addModule(@NonNull String name, @NonNull FlowModule module);
+
     Node getNode(@NonNull String id);
 
+    /**
+     * @return the graph holding the nodes and edges of the flow, which can be passed to
+     * {@link IOptional#withFlowGraph(FlowGraph)} to run other sessions of the same flow.
+     * Every other session must be given its own {@link IOptional#withSessionId(String)}.
+     */
+    FlowGraph getFlowGraph();
+
+    /**
+     * Sets a variable of this session, read by the conditions given to {@link Target#when(String)}.
+     * Strings, numbers and booleans can be compared.
+     */
+    void setVariable(@NonNull String name, @Nullable Object value);
+
+    /**
+     * Replaces the running flow with the one the given module builds, without restarting
+     * the conversation. The module adds the nodes and edges as usual and returns the new root.
+     * Nodes are matched by id, and only the items of the transcript whose node changed are
+     * bound again. The modules already entered are loaded again from the new flow.
+     * Must be called on the main thread.
+     *
+     * @throws IllegalArgumentException if the new flow does not have the current node.
+     * @throws IllegalStateException if the graph is shared with other sessions,
+     * see {@link IOptional#withFlowGraph(FlowGraph)}.
+     */
+    void update(@NonNull FlowModule flow);
+
     Set<String> getVisitedNodes();
 
     Flow prepare();
@@ -104,6 +212,12 @@ public interface InteractiveAssistant {
 
     void next(Node node);
 
+    /**
+     * Shows the pending node now, and the following ones without delay
+     * until the user has to choose an Action.
+     */
+    void fastForward();
+
     void selectLastVisitedAction();
 
     void enableSpeechSynthesizer(boolean enable);
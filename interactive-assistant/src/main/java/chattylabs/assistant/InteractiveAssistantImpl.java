@@ -4,15 +4,15 @@ import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.os.Handler;
-import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
 import android.util.TypedValue;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.annotation.VisibleForTesting;
-import androidx.collection.SimpleArrayMap;
+import androidx.collection.SparseArrayCompat;
 import androidx.core.provider.FontRequest;
 import androidx.emoji.text.EmojiCompat;
 import androidx.emoji.text.FontRequestEmojiCompatConfig;
@@ -20,13 +20,12 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import chattylabs.android.commons.DimensionUtils;
 import chattylabs.android.commons.Tag;
@@ -41,19 +40,33 @@ import chattylabs.conversations.SynthesizerListener;
 final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAssistant {
     private final String TAG = Tag.make("InteractiveAssistantImpl");
 
-    private static final long DEFAULT_MESSAGE_DELAY = 500L;
-
     @VisibleForTesting
     static final String LAST_VISITED_NODE = BuildConfig.LIBRARY_PACKAGE_NAME + ".LAST_VISITED_NODE";
     @VisibleForTesting
     static final String VISITED_NODES = BuildConfig.LIBRARY_PACKAGE_NAME + ".VISITED_NODES";
+    @VisibleForTesting
+    static final String RESUME_PATH = BuildConfig.LIBRARY_PACKAGE_NAME + ".RESUME_PATH";
+    // Ids are saved instead of indices, since the indices change when the flow is updated
+    private static final String PATH_SEPARATOR = "\u001F";
 
     public static final int LOADING_DISPLAY_DELAY = 1000;
     public static final int ITEM_SEPARATOR_SIZE_DIP = 4;
 
     private Activity context;
 
-    private final SimpleArrayMap<Node, ArrayList<Node>> graph = new SimpleArrayMap<>();
+    private final FlowGraph graph;
+    // A shared graph outlives the session, so it is only cleared by the assistant that created it,
+    // once every other session is released
+    private final boolean ownsGraph;
+    // Whether this session is still counted by the graph, until it is released
+    private boolean attached;
+    // Receives the nodes and edges while the flow is being updated or a module is being loaded
+    @Nullable
+    private FlowGraph staging;
+    // The graph whose nodes the staging graph connects to while a module is being loaded
+    @Nullable
+    private FlowGraph stagingBase;
+    private final SparseArrayCompat<String> resolvedIds = new SparseArrayCompat<>();
     private final LinearLayoutManager layoutManager;
     private final SharedPreferences sharedPreferences;
     @Nullable
@@ -63,12 +76,31 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
     @Nullable
     private Runnable onDoneListener;
 
-    private Timer timer;
-    private TimerTask task;
-    private Handler loadingHandler = new Handler(Looper.getMainLooper());
+    private final SessionScheduler scheduler;
+    private final PacingPolicy pacingPolicy;
+    // Ids of the nodes displayed in this session, which are shown again without delay
+    private final HashSet<String> shownNodes = new HashSet<>();
+    private boolean fastForward;
+    // The node waiting to be shown and the loading row waiting to be displayed
+    @Nullable
+    private SessionScheduler.Task step;
+    @Nullable
+    private SessionScheduler.Task loading;
+    // Whether the conversation must go on when resumed, because it was paused while speaking
+    private boolean nextPending;
+    private boolean speaking;
+    // Identifies the speech in progress, so an interrupted one cannot move the flow forward
+    private int speech;
     private Flow flow;
+    private Node root;
+    // Read by the conditions of the connections
+    private final HashMap<String, Object> variables = new HashMap<>();
+    // Ids of the nodes taken from the root, in order
+    private final ArrayList<String> resumePath = new ArrayList<>();
     private Node currentNode;
     private Action lastAction;
+    // Whether the node the last Action leads to is already saved
+    private boolean lastActionTracked;
 
     private boolean initialized;
     private boolean started;
@@ -77,10 +109,11 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
     private boolean enableRecognizer;
     private boolean enableLastState;
 
-    private final AssistantAdapter adapter = new AssistantAdapter((view, action) -> perform(action));
+    private final AssistantAdapter adapter;
 
     @SuppressLint("MissingPermission") InteractiveAssistantImpl(Builder builder) {
         RecyclerView recyclerView = builder.recyclerView;
+        adapter = new AssistantAdapter((view, action) -> perform(action), builder.diffingEnabled);
         context = (Activity) recyclerView.getContext();
 
         final TypedValue tv = new TypedValue();
@@ -97,17 +130,33 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
             context.runOnUiThread(() -> recyclerView.addItemDecoration(separatorItemDecoration));
         }
 
-        timer           = new Timer();
+        scheduler       = new SessionScheduler(builder.scheduler);
+        pacingPolicy    = builder.pacingPolicy;
+        ownsGraph       = builder.flowGraph == null;
+        graph           = !ownsGraph ? builder.flowGraph : builder.nodeCacheSize != null ?
+                          new FlowGraph(builder.nodeCacheSize) : new FlowGraph();
+        graph.attach();
+        attached        = true;
         enableLastState = builder.withLastStateEnabled;
         voiceComponent  = builder.voiceComponent;
         layoutManager   = ((LinearLayoutManager) recyclerView.getLayoutManager());
         //layoutManager.setSmoothScrollbarEnabled(false);
-        sharedPreferences = context.getSharedPreferences(
-            INTERACTIVE_CHAT, Context.MODE_PRIVATE);
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                // Every batch of new items is followed by one single scroll
+                int size = adapter.getItemCount();
+                if (positionStart + itemCount == size) layoutManager.scrollToPosition(size - 1);
+            }
+        });
+        sharedPreferences = context.getSharedPreferences(builder.sessionId == null ?
+            INTERACTIVE_CHAT : INTERACTIVE_CHAT + "_" + builder.sessionId, Context.MODE_PRIVATE);
         context.runOnUiThread(() -> {
             //recyclerView.setItemAnimator(null);
             EmojiCompat.Config config;
             recyclerView.setAdapter(adapter);
+            // The first rows are inflated while EmojiCompat and the voice component initialize
+            ViewHolderPreInflater.preInflate(recyclerView, adapter, builder.preInflationCount);
             if (builder.fontRequest != null) {
                 config = new FontRequestEmojiCompatConfig(
                         context, builder.fontRequest
@@ -161,7 +210,35 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
 
     @Override
     public void addNode(@NonNull Node node) {
-        if (!graph.containsKey(node)) graph.put(node, null);
+        edited().addNode(node);
+    }
+
+    @Override
+    public void addNode(@NonNull String id, boolean isAction, @NonNull NodeFactory factory) {
+        edited().addNode(new LazyNode(id, isAction, factory));
+    }
+
+    @Override
+    public void addModule(@NonNull String name, @NonNull FlowModule module) {
+        edited().addNode(new ModuleNode(name, module));
+    }
+
+    private FlowGraph edited() {
+        return staging != null ? staging : graph;
+    }
+
+    /**
+     * @return the instance of the node in the graph being edited, or in the graph a module
+     * is being loaded on, which is then added to the staging graph as well so it can be connected.
+     */
+    @Nullable
+    private Node findEdited(@NonNull Node node) {
+        Node found = edited().find(node);
+        if (found == null && stagingBase != null) {
+            found = stagingBase.find(node);
+            if (found != null) edited().addNode(found);
+        }
+        return found;
     }
 
     @Override
@@ -172,6 +249,10 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
 
     @Override
     public synchronized void next() {
+        if (paused) {
+            nextPending = true;
+            return;
+        }
         boolean canTrack = !(lastAction instanceof CanSkipTracking) ||
                            !((CanSkipTracking) lastAction).skipTracking();
         if (lastAction != null && canTrack) trackLastNode();
@@ -187,69 +268,158 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
     private Node getNext() {
         Node currentNode = getCurrentNode();
         if (currentNode instanceof ActionList) return null;
-        ArrayList<Node> outgoingEdges = getOutgoingEdges(currentNode);
-        if (outgoingEdges == null || outgoingEdges.isEmpty()) {
+        CompiledFlow compiled = graph.compile();
+        int index = compiled.indexOf(currentNode);
+        if (index == -1 || compiled.getOutDegree(index) == 0) {
             return null;
         }
 
-        if (outgoingEdges.size() == 1) {
-            Node node = outgoingEdges.get(0);
-            if (node instanceof Action) {
-                ArrayList<Node> nodes = new ArrayList<>(1);
-                nodes.add(node);
-                return getActionList(nodes);
+        // The FlowValidator guarantees that Actions are never mixed with other nodes
+        if (compiled.isAction(compiled.getTarget(index, 0))) {
+            ActionList actionList = compiled.getActionList(index, variables);
+            return actionList.isEmpty() ? null : actionList;
+        }
+        int target = compiled.route(index, variables);
+        if (target == -1) return null;
+        target = enterModules(target);
+        return graph.compile().resolve(target);
+    }
+
+    /**
+     * Loads every module found while stepping on the given node.
+     *
+     * @return the index of the first node after the modules in the current compiled flow.
+     */
+    private int enterModules(int index) {
+        CompiledFlow compiled = graph.compile();
+        Node node = compiled.nodeAt(index);
+        while (node instanceof ModuleNode) {
+            loadModule((ModuleNode) node);
+            compiled = graph.compile();
+            index = compiled.getTarget(compiled.indexOf(node), 0);
+            node = compiled.nodeAt(index);
+        }
+        return index;
+    }
+
+    private void loadModule(ModuleNode moduleNode) {
+        // Another session sharing the graph might be loading the same module
+        synchronized (graph) {
+            if (moduleNode.loaded) return;
+            // Built apart, so a module failing to load leaves the graph as it was and can be loaded again
+            FlowGraph module = new FlowGraph();
+            staging = module;
+            stagingBase = graph;
+            try {
+                attachModule(moduleNode);
+            } finally {
+                staging = null;
+                stagingBase = null;
             }
-            return outgoingEdges.get(0);
-        } else {
-            return getActionList(outgoingEdges);
+            graph.merge(module);
+            moduleNode.loaded = true;
+            CompiledFlow compiled = graph.compile();
+            validate(compiled, compiled.indexOf(root));
         }
     }
 
+    /**
+     * Adds the nodes of the module to the graph being edited and connects them to the module node.
+     */
+    private void attachModule(ModuleNode moduleNode) {
+        Node entry = moduleNode.module.load(this);
+        if (entry instanceof Action || entry instanceof LazyNode && ((LazyNode) entry).isAction) {
+            throw new IllegalStateException("Module [" + moduleNode.name + "] must start with a Message");
+        }
+        addEdge(entry, moduleNode);
+    }
+
+    private void validate(CompiledFlow compiled, int rootIndex) {
+        for (String warning : FlowValidator.validate(compiled, rootIndex)) Log.w(TAG, warning);
+    }
+
     @Override
-    void addEdge(@NonNull Node node, @NonNull Node incomingEdge) {
-        if (!graph.containsKey(node) || !graph.containsKey(incomingEdge)) {
+    void addEdge(@NonNull Node node, @NonNull Node incomingEdge, @Nullable Condition condition) {
+        Node target = findEdited(node);
+        Node source = findEdited(incomingEdge);
+        if (target == null || source == null) {
             throw new IllegalArgumentException("All nodes must be present in the graph " +
                     "before generating the Flow. " +
-                    "\nNode [" + (!graph.containsKey(incomingEdge) ?
+                    "\nNode [" + (source == null ?
                     ((HasId) incomingEdge).getId() :
                     ((HasId) node).getId()) +
                     "] has not been added yet.");
         }
 
-        ArrayList<Node> edges = graph.get(node);
-        if (edges == null) {
-            // If edges is null, we should try and get one and add it to the graph
-            edges = new ArrayList<>();
-            graph.put(node, edges);
-        }
-        // Finally add the edge to the list
-        edges.add(incomingEdge);
+        edited().addEdge(target, source, condition);
+    }
+
+    @Override
+    public void setVariable(@NonNull String name, @Nullable Object value) {
+        variables.put(name, value);
     }
 
     @Override
     public Node getNode(@NonNull String id) {
-        for (int i = 0, size = graph.size(); i < size; i++) {
-            Node node = graph.keyAt(i);
-            if (node instanceof HasId && ((HasId) node).getId().equals(id)) {
-                return node;
-            }
-        }
+        Node node = findNode(id);
+        // The nodes of the running graph are built by it, also while a module is being loaded
+        return (stagingBase != null && stagingBase.find(node) == node ? stagingBase : edited()).resolve(node);
+    }
+
+    @Override
+    public FlowGraph getFlowGraph() {
+        return graph;
+    }
+
+    @Override
+    Node findNode(@NonNull String id) {
+        Node node = edited().getNode(id);
+        if (node == null && stagingBase != null) node = stagingBase.getNode(id);
+        if (node != null) return node;
         throw new IllegalArgumentException("Node [" + id + "] does not exists in the graph. " +
                                            "Have you forgotten to add it with addNode(Node)?");
     }
 
     @Override
-    public Node getNode(@StringRes int id) {
-        return getNode(context.getString(id));
+    Node findNode(@StringRes int id) {
+        String resolvedId = resolvedIds.get(id);
+        if (resolvedId == null) {
+            resolvedId = context.getString(id);
+            resolvedIds.put(id, resolvedId);
+        }
+        return findNode(resolvedId);
     }
 
     @Override
     synchronized void start(@NonNull Node root) {
+        this.root = root;
+        CompiledFlow compiled = graph.compile();
+        int rootIndex = compiled.indexOf(root);
+        validate(compiled, rootIndex);
         String lastSavedNodeId = getLastVisitedNodeId((HasId) root);
-        Node lastSavedNode = getNode(lastSavedNodeId);
-        adapter.addItem(root);
-        traverse(adapter.getItems(), root, lastSavedNode);
-        adapter.checkViewHolders();
+        List<Node> items = new ArrayList<>();
+        items.add(root);
+        int last = restorePath(items, rootIndex, lastSavedNodeId);
+        if (last == -1) {
+            // There is no saved path or it does not fit the flow anymore
+            items.subList(1, items.size()).clear();
+            resumePath.clear();
+            resumePath.add(((HasId) root).getId());
+            last = traverse(items, rootIndex, lastSavedNodeId);
+        }
+        compiled = graph.compile();
+        Node lastSavedNode = root;
+        if (last != -1 && last == compiled.indexOf(lastSavedNodeId)) {
+            lastSavedNode = compiled.resolve(last);
+        } else {
+            // The saved node does not exist anymore, the flow has changed
+            items.subList(1, items.size()).clear();
+            resumePath.subList(1, resumePath.size()).clear();
+        }
+        for (Node item : items) {
+            if (item instanceof HasId) shownNodes.add(((HasId) item).getId());
+        }
+        adapter.addItems(items);
         currentNode = lastSavedNode;
         started = true;
         if (initialized) {
@@ -257,82 +427,186 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
         }
     }
 
-    private ActionList getActionList(ArrayList<Node> edges) {
-        String id = "UNKNOWN";
+    @Override
+    public synchronized void update(@NonNull FlowModule flow) {
+        if (graph.isShared()) {
+            throw new IllegalStateException("The flow graph is shared with other sessions " +
+                                            "and cannot be updated by one of them");
+        }
+        FlowGraph source = new FlowGraph();
+        staging = source;
+        Node newRoot;
         try {
-            ActionList actionList = new ActionList();
-            for (int i = 0, size = edges.size(); i < size; i++) {
-                if (edges.get(i) instanceof HasId)
-                    id = ((HasId)edges.get(i)).getId();
-                actionList.add((Action) edges.get(i));
+            newRoot = flow.load(this);
+            loadEnteredModules(source);
+        } finally {
+            staging = null;
+        }
+        CompiledFlow compiled = source.compile();
+        validate(compiled, compiled.indexOf(newRoot));
+        String currentId = currentNode instanceof HasId ? ((HasId) currentNode).getId() : null;
+        if (currentId != null && source.getNode(currentId) == null) {
+            throw new IllegalArgumentException("Node [" + currentId + "] is being displayed " +
+                                               "and must be part of the new flow");
+        }
+
+        Set<String> changed = graph.update(source);
+        root = graph.find(newRoot);
+        if (changed.isEmpty()) return;
+        compiled = graph.compile();
+        List<Node> items = adapter.getLatestItems();
+        for (int position = 0, size = items.size(); position < size; position++) {
+            Node item = items.get(position);
+            Node updated = null;
+            if (item instanceof HasId && changed.contains(((HasId) item).getId())) {
+                int index = compiled.indexOf(((HasId) item).getId());
+                if (index != -1) updated = compiled.resolve(index);
+            } else if (item instanceof ActionList && position > 0 && items.get(position - 1) instanceof HasId) {
+                // The Actions are displayed right after the node they branch from
+                for (Action action : (ActionList) item) {
+                    if (action instanceof HasId && changed.contains(((HasId) action).getId())) {
+                        int index = compiled.indexOf(((HasId) items.get(position - 1)).getId());
+                        if (index != -1) updated = compiled.getActionList(index, variables);
+                        break;
+                    }
+                }
             }
-            Collections.sort(actionList);
-            return actionList;
-        } catch (ClassCastException ignored) {
-            throw new IllegalStateException("Only Actions can represent several edges in the graph. Error in [" + id + "] node.");
+            // Items that are not part of the new flow anymore stay in the transcript
+            if (updated == null || NodeContent.same(item, updated)) continue;
+            if (item == currentNode) currentNode = updated;
+            adapter.setItem(position, updated);
+        }
+        if (currentId != null && changed.contains(currentId)) {
+            currentNode = compiled.resolve(compiled.indexOf(currentId));
+        }
+        if (lastAction instanceof HasId && changed.contains(((HasId) lastAction).getId())) {
+            int index = compiled.indexOf(((HasId) lastAction).getId());
+            lastAction = index != -1 && compiled.isAction(index) ? (Action) compiled.resolve(index) : null;
         }
     }
 
-    @Nullable
-    private ArrayList<Node> getIncomingEdges(@NonNull Node node) {
-        return graph.get(node);
-    }
+    // Internal
 
-    @Nullable
-    private ArrayList<Node> getOutgoingEdges(@NonNull Node node) {
-        ArrayList<Node> result = null;
-        for (int i = 0, size = graph.size(); i < size; i++) {
-            ArrayList<Node> edges = graph.valueAt(i);
-            if (edges != null && edges.contains(node)) {
-                if (result == null) {
-                    result = new ArrayList<>();
+    /**
+     * Loads the modules of the new flow that are loaded in the running one, so the nodes
+     * already displayed from them are matched, and the modules of those modules as well.
+     */
+    private void loadEnteredModules(FlowGraph source) {
+        boolean loading = true;
+        while (loading) {
+            loading = false;
+            for (Node node : new ArrayList<>(source.nodes())) {
+                if (!(node instanceof ModuleNode) || ((ModuleNode) node).loaded) continue;
+                Node running = graph.getNode(((ModuleNode) node).name);
+                if (running instanceof ModuleNode && ((ModuleNode) running).loaded) {
+                    attachModule((ModuleNode) node);
+                    ((ModuleNode) node).loaded = true;
+                    loading = true;
                 }
-                result.add(graph.keyAt(i));
             }
         }
-        return result;
     }
 
-
-    // Internal
-
-    private void traverse(List<Node> items, Node root, Node target) {
-        if (root.equals(target)) return;
-        final ArrayList<Node> edges = getOutgoingEdges(root);
-        if (edges != null && !edges.isEmpty()) {
-            if (edges.size() == 1) {
-                Node node = edges.get(0);
-                if (node.equals(target)) {
-                    items.add(node);
-                    return;
+    /**
+     * Rebuilds the items the user has already seen from the saved resume path.
+     * Only the edges of the path are checked, so it runs in O(path length).
+     *
+     * @return the index of the last node of the path, or -1 if there is no path that fits the flow.
+     */
+    private int restorePath(List<Node> items, int root, @NonNull String targetId) {
+        String saved = sharedPreferences.getString(RESUME_PATH, null);
+        if (root == -1 || TextUtils.isEmpty(saved)) return -1;
+        String[] path = saved.split(PATH_SEPARATOR);
+        CompiledFlow compiled = graph.compile();
+        if (!path[0].equals(idOf(compiled, root)) || !path[path.length - 1].equals(targetId)) return -1;
+        int index = root;
+        for (int i = 1; i < path.length; i++) {
+            final int degree = compiled.getOutDegree(index);
+            int next = -1;
+            if (degree == 1) {
+                next = enterModules(compiled.getTarget(index, 0));
+                compiled = graph.compile();
+            } else {
+                for (int e = 0; e < degree && next == -1; e++) {
+                    int target = compiled.getTarget(index, e);
+                    if (path[i].equals(idOf(compiled, target))) next = target;
                 }
-                if (node instanceof Action) {
-                    Action action = (Action) node;
-                    if (action instanceof CanHandleState) {
-                        ((CanHandleState) action).restoreSavedState(sharedPreferences);
-                    }
-                    if (action instanceof MustBuildActionFeedback) {
-                        items.add(((MustBuildActionFeedback) action).buildActionFeedback());
-                    }
-                    traverse(items, action, target);
-                } else {
-                    items.add(node);
-                    traverse(items, node, target);
+            }
+            if (next == -1 || !path[i].equals(idOf(compiled, next))) return -1;
+            index = next;
+            Node node = compiled.resolve(index);
+            if (node instanceof Action && (degree > 1 || i < path.length - 1)) {
+                if (node instanceof CanHandleState) {
+                    ((CanHandleState) node).restoreSavedState(sharedPreferences);
+                }
+                if (node instanceof MustBuildActionFeedback) {
+                    items.add(((MustBuildActionFeedback) node).buildActionFeedback());
                 }
             } else {
-                ActionList actionList = getActionList(edges);
-                Action action = actionList.getVisited(getVisitedNodes());
-                if (action != null) {
-                    if (action instanceof CanHandleState) {
-                        ((CanHandleState) action).restoreSavedState(sharedPreferences);
-                    }
-                    if (action instanceof MustBuildActionFeedback) {
-                        items.add(((MustBuildActionFeedback) action).buildActionFeedback());
-                    }
-                    traverse(items, action, target);
+                items.add(node);
+            }
+        }
+        resumePath.clear();
+        resumePath.addAll(Arrays.asList(path));
+        return index;
+    }
+
+    @Nullable
+    private static String idOf(CompiledFlow compiled, int index) {
+        Node node = compiled.nodeAt(index);
+        return node instanceof HasId ? ((HasId) node).getId() : null;
+    }
+
+    /**
+     * Walks the flow from the root up to the target node and collects the items
+     * the user has already seen. The visited nodes are read only once, and the walk
+     * stops when it would step on the same node twice.
+     *
+     * @return the index of the node where the walk stopped.
+     */
+    private int traverse(List<Node> items, int root, @NonNull String targetId) {
+        if (root == -1) return root;
+        CompiledFlow compiled = graph.compile();
+        final Set<String> visitedNodes = getVisitedNodes();
+        boolean[] walked = new boolean[compiled.size()];
+        int target = compiled.indexOf(targetId);
+        int index = root;
+        while (index != target && !walked[index]) {
+            walked[index] = true;
+            final int degree = compiled.getOutDegree(index);
+            if (degree == 0) break;
+            final Node node;
+            int next = compiled.getTarget(index, 0);
+            if (degree > 1 && compiled.isAction(next)) {
+                ActionList actionList = compiled.getActionList(index, variables);
+                if (actionList.isEmpty()) break;
+                node = actionList.getVisited(visitedNodes);
+                index = compiled.indexOf(node);
+            } else {
+                if (!compiled.isAction(next)) next = compiled.route(index, variables);
+                if (next == -1) break;
+                index = enterModules(next);
+                if (compiled != graph.compile()) {
+                    // A module was loaded, the indices already known do not change
+                    compiled = graph.compile();
+                    walked = Arrays.copyOf(walked, compiled.size());
+                    target = compiled.indexOf(targetId);
                 }
+                node = compiled.resolve(index);
+            }
+            if (node instanceof HasId) resumePath.add(((HasId) node).getId());
+            if (node instanceof Action && (degree > 1 || index != target)) {
+                if (node instanceof CanHandleState) {
+                    ((CanHandleState) node).restoreSavedState(sharedPreferences);
+                }
+                if (node instanceof MustBuildActionFeedback) {
+                    items.add(((MustBuildActionFeedback) node).buildActionFeedback());
+                }
+            } else {
+                items.add(node);
             }
         }
+        return index;
     }
 
     private void show(@Nullable Node node) {
@@ -383,7 +657,13 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
             if (item instanceof HasText) {
                 if (item instanceof CanSynthesizeSpeech) {
                     showLoading();
-                    ((CanSynthesizeSpeech) item).consumeSynthesizer(speechSynthesizer, () -> context.runOnUiThread(this::next));
+                    final int current = ++speech;
+                    speaking = true;
+                    ((CanSynthesizeSpeech) item).consumeSynthesizer(speechSynthesizer, () -> context.runOnUiThread(() -> {
+                        if (current != speech) return;
+                        speaking = false;
+                        next();
+                    }));
                 } else {
                     next();
                 }
@@ -456,44 +736,52 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
 
     @Override
     public void showLoading() {
-        loadingHandler.postDelayed(() -> {
-            int size = adapter.getItemCount();
-            if (size == 0 || !(adapter.getItem(size - 1) instanceof LoadingView)) {
-                adapter.addItem(new LoadingView());
-                layoutManager.scrollToPosition(size);
-            }
+        scheduler.cancel(loading);
+        loading = scheduler.schedule(() -> {
+            loading = null;
+            if (!adapter.endsWith(LoadingView.class)) adapter.postItem(new LoadingView());
         }, LOADING_DISPLAY_DELAY);
     }
 
     @Override
     public void hideLoading() {
-        if (loadingHandler != null) loadingHandler.removeCallbacksAndMessages(null);
-        int position = adapter.getLastPositionOf(LoadingView.class);
-        if (position != -1 && !context.isFinishing())
-            context.runOnUiThread(() -> adapter.removeItem(position));
+        scheduler.cancel(loading);
+        loading = null;
+        if (context.isFinishing()) return;
+        // The position is looked up on the main thread, where every change of the items happens
+        context.runOnUiThread(() -> {
+            int position = adapter.getLastPositionOf(LoadingView.class);
+            if (position != -1) adapter.removeItem(position);
+        });
     }
 
     private void trackLastNode() {
-        ArrayList<Node> outgoingEdges = getOutgoingEdges(lastAction);
-        if (outgoingEdges != null && !outgoingEdges.isEmpty()) {
-            if (outgoingEdges.size() == 1) {
-                Node node = outgoingEdges.get(0);
-                if (!(node instanceof Action)) {
-                    if (enableLastState) setLastVisitedNode((HasId) node);
-                } else {
-                    throw new IllegalStateException("An Action can only be " +
-                            "connected to a Message");
-                }
-            } else {
-                throw new IllegalStateException("An Action cannot have multiple " +
-                        "connections in the graph");
-            }
+        // next() is called after every message, the node is only tracked once per Action
+        if (lastActionTracked) return;
+        CompiledFlow compiled = graph.compile();
+        int index = compiled.indexOf(lastAction);
+        // The FlowValidator guarantees an Action is connected to one Message at most
+        if (index != -1 && compiled.getOutDegree(index) == 1 && enableLastState) {
+            lastActionTracked = true;
+            int target = enterModules(compiled.getTarget(index, 0));
+            HasId node = (HasId) graph.compile().nodeAt(target);
+            addToPath(node.getId());
+            // The path ends with the node it is resumed from
+            setLastVisitedNode(node);
         }
     }
 
+    private void addToPath(@NonNull String id) {
+        // The tracked node is added before it is displayed
+        int size = resumePath.size();
+        if (size == 0 || !resumePath.get(size - 1).equals(id)) resumePath.add(id);
+    }
+
     private void perform(Action action) {
         currentNode = action;
         lastAction = action;
+        lastActionTracked = false;
+        if (action instanceof HasId) addToPath(((HasId) action).getId());
         if (speechRecognizer != null) speechRecognizer.stop();
         if (action instanceof HasOnSelected && ((HasOnSelected) action).onSelected() != null) {
             ((HasOnSelected) action).onSelected().execute(action);
@@ -522,6 +810,7 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
 
     private void placeSelectedAction(Action action) {
         lastAction = action;
+        lastActionTracked = false;
         if (action instanceof CanHandleState) {
             ((CanHandleState) action).restoreSavedState(sharedPreferences);
         }
@@ -530,20 +819,16 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
     }
 
     private void addLast(Node node) {
-        context.runOnUiThread(() -> {
-            adapter.addItem(node);
-            layoutManager.scrollToPosition(adapter.getItemCount() - 1);
-        });
+        context.runOnUiThread(() -> adapter.postItem(node));
     }
 
     private void removeLastItem() {
-        if (adapter.getItemCount() > 0) context.runOnUiThread(() ->
-                adapter.removeItem(adapter.getItemCount() - 1));
+        context.runOnUiThread(adapter::removeLastItem);
     }
 
     private void setLastVisitedNode(HasId node) {
-        sharedPreferences.edit().putString(LAST_VISITED_NODE,
-                node.getId()).apply();
+        sharedPreferences.edit().putString(LAST_VISITED_NODE, node.getId())
+                .putString(RESUME_PATH, TextUtils.join(PATH_SEPARATOR, resumePath)).apply();
     }
 
     private void saveVisitedNode(HasId node) {
@@ -578,21 +863,32 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
     public void removeLastState() {
         sharedPreferences.edit().remove(LAST_VISITED_NODE).apply();
         sharedPreferences.edit().remove(VISITED_NODES).apply();
+        sharedPreferences.edit().remove(RESUME_PATH).apply();
     }
 
     @Override
     public void release() {
         cancel();
-        if (timer != null) {
-            timer.cancel();
-        }
-        timer = null;
-        task = null;
-        loadingHandler.removeCallbacksAndMessages(null);
+        scheduler.cancelAll();
+        step    = null;
+        loading = null;
+        speaking    = false;
+        nextPending = false;
         sharedPreferences.edit().clear().apply();
-        graph.clear();
+        if (attached) {
+            attached = false;
+            // The other sessions keep running on the graph until they are released too
+            if (graph.detach() && ownsGraph) graph.clear();
+        }
+        resolvedIds.clear();
+        resumePath.clear();
+        variables.clear();
+        shownNodes.clear();
+        fastForward       = false;
+        root              = null;
         currentNode       = null;
         lastAction        = null;
+        lastActionTracked = false;
         onDoneListener    = null;
         paused            = false;
         enableSynthesizer = false;
@@ -601,39 +897,52 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
     }
 
     private void cancel() {
-        if (timer != null) {
-            timer.cancel();
-            timer = new Timer();
-        }
         if (voiceComponent != null) voiceComponent.shutdown();
     }
 
     private void schedule(Node item) {
-        task = new TimerTask() {
-            @Override
-            public void run() {
-                context.runOnUiThread(() -> {
-                    task = null;
-                    hideLoading();
-                    addLast(item);
-                    if (!(item instanceof Action) &&
-                        !(item instanceof ActionList)) {
-                        currentNode = item;
-                        handleNotActionNode(item);
-                    } else {
-                        handleActionNode(item);
-                        // Never show next node automatically for actions
-                        // Let the developer to choose when to do next()
-                    }
-                });
+        String id = item instanceof HasId ? ((HasId) item).getId() : null;
+        long delay = fastForward ? 0 : pacingPolicy.getDelay(currentNode, item, shownNodes.contains(id));
+        // The text is measured in the background while waiting
+        if (delay > 0 && item instanceof MessageText) TextPrecomputer.prepare((MessageText) item);
+        // The scheduler runs on the main thread already
+        step = scheduler.schedule(() -> {
+            step = null;
+            if (id != null) shownNodes.add(id);
+            // The user has to choose, so the fast forward ends here
+            if (item instanceof Action || item instanceof ActionList) fastForward = false;
+            hideLoading();
+            addLast(item);
+            if (!(item instanceof Action) &&
+                !(item instanceof ActionList)) {
+                currentNode = item;
+                if (item instanceof HasId) addToPath(((HasId) item).getId());
+                handleNotActionNode(item);
+            } else {
+                handleActionNode(item);
+                // Never show next node automatically for actions
+                // Let the developer to choose when to do next()
             }
-        };
-        timer.schedule(task, DEFAULT_MESSAGE_DELAY);
+        }, delay);
+    }
+
+    @Override
+    public void fastForward() {
+        fastForward = true;
+        if (step != null && !paused) scheduler.runNow(step);
     }
 
     @Override
     public void pause() {
+        if (paused) return;
         paused = true;
+        scheduler.pause();
+        // The speech is interrupted, so the conversation goes on when resumed
+        if (speaking) {
+            speaking = false;
+            speech++;
+            nextPending = true;
+        }
         cancel();
     }
 
@@ -641,13 +950,12 @@ final class InteractiveAssistantImpl extends Flow.Edge implements InteractiveAss
     public void resume() {
         if (paused) {
             paused = false;
-            if (task != null) {
-                timer.schedule(new TimerTask() {
-                    @Override public void run() {
-                        if (task != null) task.run();
-                    }
-                }, DEFAULT_MESSAGE_DELAY);
-            } else next();
+            // The pending node and loading row wait only the time they had left
+            scheduler.resume();
+            if (nextPending) {
+                nextPending = false;
+                next();
+            }
         }
     }
 }
@@ -0,0 +1,25 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Lightweight placeholder kept in the graph instead of a {@link Node} that has not
+ * been built yet. The real node is created by its {@link NodeFactory} the first time
+ * the conversation reaches it.
+ */
+final class LazyNode implements Node, HasId {
+    final String id;
+    final boolean isAction;
+    NodeFactory factory;
+
+    LazyNode(@NonNull String id, boolean isAction, @NonNull NodeFactory factory) {
+        this.id       = id;
+        this.isAction = isAction;
+        this.factory  = factory;
+    }
+
+    @NonNull @Override
+    public String getId() {
+        return id;
+    }
+}
@@ -15,7 +15,11 @@ class LoadingViewHolderBuilder implements ViewHolderBuilder {
     @Override
     public RecyclerView.ViewHolder createViewHolder(ViewGroup viewGroup, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
-        View view = inflater.inflate(viewType, viewGroup, false);
+        return createViewHolder(inflater.inflate(viewType, viewGroup, false));
+    }
+
+    @Override
+    public RecyclerView.ViewHolder createViewHolder(View view) {
         return new ChatLoadingViewHolder(view);
     }
 
@@ -0,0 +1,32 @@
+package chattylabs.assistant;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link Scheduler} backed by one Handler of the main Looper.
+ */
+final class MainThreadScheduler implements Scheduler {
+
+    static final MainThreadScheduler INSTANCE = new MainThreadScheduler();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private MainThreadScheduler() {}
+
+    @NonNull @Override
+    public Token schedule(@NonNull Runnable runnable, long delayMillis) {
+        // Every token wraps its own runnable, so the same runnable can be scheduled twice
+        Runnable task = runnable::run;
+        handler.postDelayed(task, delayMillis);
+        return () -> handler.removeCallbacks(task);
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+}
@@ -12,7 +12,7 @@ public class MessageImage implements Node, HasId, HasOnLoaded, HasViewLayout {
     final String id;
     final int image;
     final int tintColor;
-    final Runnable onLoaded;
+    Runnable onLoaded;
 
     public static class Builder {
         private String id;
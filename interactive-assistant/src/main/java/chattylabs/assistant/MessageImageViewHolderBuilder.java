@@ -1,11 +1,11 @@
 package chattylabs.assistant;
 
-import android.content.res.ColorStateList;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 class MessageImageViewHolderBuilder implements ViewHolderBuilder {
@@ -17,7 +17,11 @@ class MessageImageViewHolderBuilder implements ViewHolderBuilder {
     @Override
     public RecyclerView.ViewHolder createViewHolder(ViewGroup viewGroup, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
-        View view = inflater.inflate(viewType, viewGroup, false);
+        return createViewHolder(inflater.inflate(viewType, viewGroup, false));
+    }
+
+    @Override
+    public RecyclerView.ViewHolder createViewHolder(View view) {
         return new ChatMessageImageViewHolder(view);
     }
 
@@ -34,9 +38,9 @@ class MessageImageViewHolderBuilder implements ViewHolderBuilder {
             MessageImage message = (MessageImage) adapter.getItems().get(position);
             imageView.setTag(message.id);
             imageView.setImageResource(message.image);
-            if (message.tintColor > 0) {
-                imageView.setImageTintList(ColorStateList.valueOf(message.tintColor));
-            } // TODO reset imageTintColor
+            // The tint is a color resource, and a reused row might have the tint of another image
+            imageView.setImageTintList(message.tintColor != 0 ?
+                    ContextCompat.getColorStateList(imageView.getContext(), message.tintColor) : null);
         }
     }
 }
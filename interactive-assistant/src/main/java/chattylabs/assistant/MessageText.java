@@ -18,7 +18,7 @@ public class MessageText implements Node, HasId, HasOnLoaded, HasText, HasViewLa
     final float textSize;
     final int tintColor;
     final boolean aloud;
-    final Runnable onLoaded;
+    Runnable onLoaded;
     final boolean isFirstMessage;
     final boolean isInboundMessage;
 
@@ -129,6 +129,7 @@ public class MessageText implements Node, HasId, HasOnLoaded, HasText, HasViewLa
 
     public void setText(String text) {
         this.text = text;
+        TextCache.invalidate(id);
     }
 
     public int getTintColor() {
@@ -1,6 +1,5 @@
 package chattylabs.assistant;
 
-import android.text.Spanned;
 import android.text.method.LinkMovementMethod;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
@@ -8,6 +7,8 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 
@@ -20,7 +21,11 @@ class MessageTextViewHolderBuilder implements ViewHolderBuilder {
     @Override
     public RecyclerView.ViewHolder createViewHolder(ViewGroup viewGroup, int viewType) {
         LayoutInflater inflater = LayoutInflater.from(viewGroup.getContext());
-        View view = inflater.inflate(viewType, viewGroup, false);
+        return createViewHolder(inflater.inflate(viewType, viewGroup, false));
+    }
+
+    @Override
+    public RecyclerView.ViewHolder createViewHolder(View view) {
         return new MessageTextViewHolderBuilder.ChatMessageViewHolder(view);
     }
 
@@ -43,10 +48,17 @@ class MessageTextViewHolderBuilder implements ViewHolderBuilder {
             } else {
                 textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, defaultTextSize);
             }
-            Spanned span = InteractiveAssistant.formatHTML(message.text);
-            CharSequence text = InteractiveAssistant.processEmoji(span);
             textView.setTag(message.id);
-            textView.setText(text);
+            if (message.textSize <= 0) {
+                PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(textView);
+                TextPrecomputer.setParams(params);
+                PrecomputedTextCompat precomputedText = TextPrecomputer.get(message, params);
+                if (precomputedText != null) {
+                    TextViewCompat.setPrecomputedText(textView, precomputedText);
+                    return;
+                }
+            }
+            textView.setText(TextCache.get(message.id, message.text));
         }
     }
 }
@@ -0,0 +1,23 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Stands for a {@link FlowModule} in the graph. Once the module is loaded
+ * this node is connected to the node the module starts with.
+ */
+final class ModuleNode implements Node, HasId {
+    final String name;
+    FlowModule module;
+    boolean loaded;
+
+    ModuleNode(@NonNull String name, @NonNull FlowModule module) {
+        this.name   = name;
+        this.module = module;
+    }
+
+    @NonNull @Override
+    public String getId() {
+        return name;
+    }
+}
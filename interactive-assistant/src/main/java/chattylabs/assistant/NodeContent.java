@@ -0,0 +1,230 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compares what two versions of a node display, field by field, since the
+ * {@code equals} of the nodes only compares their ids.
+ * Callbacks are not compared, since a flow built again always creates new ones.
+ * They are taken over by the node that is kept instead, see {@link #takeCallbacks(Node, Node)}.
+ */
+final class NodeContent {
+
+    private NodeContent() {}
+
+    /**
+     * @return true when the new node shows the same content as the old one.
+     * Nodes that cannot be compared are considered changed.
+     */
+    static boolean same(@Nullable Node old, @Nullable Node node) {
+        if (old == node) return true;
+        if (old == null || node == null || old.getClass() != node.getClass()) return false;
+        if (old instanceof LazyNode) {
+            return sameLazyNode((LazyNode) old, (LazyNode) node);
+        }
+        if (old instanceof ModuleNode) {
+            return sameModule((ModuleNode) old, (ModuleNode) node);
+        }
+        if (old instanceof MessageText) {
+            return sameMessage((MessageText) old, (MessageText) node);
+        }
+        if (old instanceof MessageImage) {
+            return sameImage((MessageImage) old, (MessageImage) node);
+        }
+        if (old instanceof ActionText) {
+            return sameAction((ActionText) old, (ActionText) node);
+        }
+        if (old instanceof ActionIcon) {
+            return sameAction((ActionIcon) old, (ActionIcon) node);
+        }
+        if (old instanceof ActionSeekBar) {
+            return sameAction((ActionSeekBar) old, (ActionSeekBar) node);
+        }
+        if (old instanceof AutoCompleteAction) {
+            return sameAction((AutoCompleteAction) old, (AutoCompleteAction) node);
+        }
+        if (old instanceof ActionMultiChoice) {
+            return sameAction((ActionMultiChoice) old, (ActionMultiChoice) node);
+        }
+        if (old instanceof ActionList) {
+            return sameList((ActionList) old, (ActionList) node);
+        }
+        return false;
+    }
+
+    /**
+     * Gives the callbacks of the new node to the old one, which shows the same content
+     * and is kept instead, so the Actions already displayed run the new callbacks.
+     */
+    static void takeCallbacks(@NonNull Node old, @NonNull Node node) {
+        if (old == node) return;
+        if (old instanceof LazyNode) {
+            ((LazyNode) old).factory = ((LazyNode) node).factory;
+        } else if (old instanceof ModuleNode) {
+            ((ModuleNode) old).module = ((ModuleNode) node).module;
+        } else if (old instanceof MessageText) {
+            ((MessageText) old).onLoaded = ((MessageText) node).onLoaded;
+        } else if (old instanceof MessageImage) {
+            ((MessageImage) old).onLoaded = ((MessageImage) node).onLoaded;
+        } else if (old instanceof ActionText) {
+            takeCallbacks((ActionText) old, (ActionText) node);
+        } else if (old instanceof ActionIcon) {
+            ((ActionIcon) old).onLoaded = ((ActionIcon) node).onLoaded;
+            ((ActionIcon) old).onSelected = ((ActionIcon) node).onSelected;
+        } else if (old instanceof ActionSeekBar) {
+            ActionSeekBar oldSeekBar = (ActionSeekBar) old;
+            ActionSeekBar seekBar = (ActionSeekBar) node;
+            oldSeekBar.onLoaded = seekBar.onLoaded;
+            oldSeekBar.onSeekBarChangeListener = seekBar.onSeekBarChangeListener;
+            takeCallbacks(oldSeekBar.confirmationAction, seekBar.confirmationAction);
+        } else if (old instanceof AutoCompleteAction) {
+            AutoCompleteAction oldAction = (AutoCompleteAction) old;
+            AutoCompleteAction action = (AutoCompleteAction) node;
+            oldAction.onLoaded = action.onLoaded;
+            if (oldAction.actions != null && action.actions != null) {
+                for (int i = 0, size = action.actions.size(); i < size; i++) {
+                    takeCallbacks(oldAction.actions.get(i), action.actions.get(i));
+                }
+            }
+        } else if (old instanceof ActionMultiChoice) {
+            ActionMultiChoice oldAction = (ActionMultiChoice) old;
+            ActionMultiChoice action = (ActionMultiChoice) node;
+            oldAction.onLoaded = action.onLoaded;
+            oldAction.onOptionChangeListener = action.onOptionChangeListener;
+            takeCallbacks(oldAction.confirmationAction, action.confirmationAction);
+            for (int i = 0, size = action.actionChipChoices.size(); i < size; i++) {
+                oldAction.actionChipChoices.get(i).onLoaded = action.actionChipChoices.get(i).onLoaded;
+            }
+        } else if (old instanceof ActionList) {
+            ActionList oldList = (ActionList) old;
+            ActionList list = (ActionList) node;
+            for (int i = 0, size = list.size(); i < size; i++) takeCallbacks(oldList.get(i), list.get(i));
+        }
+    }
+
+    private static void takeCallbacks(@Nullable ActionText old, @Nullable ActionText node) {
+        if (old == null || node == null || old == node) return;
+        old.onLoaded = node.onLoaded;
+        old.onSelected = node.onSelected;
+    }
+
+    private static boolean sameLazyNode(LazyNode old, LazyNode node) {
+        // The nodes they build are compared by the graph, once built
+        return old.id.equals(node.id)
+               && old.isAction == node.isAction;
+    }
+
+    private static boolean sameModule(ModuleNode old, ModuleNode node) {
+        // A loaded module is connected to the nodes it added, so both must be loaded
+        return old.name.equals(node.name)
+               && old.loaded == node.loaded;
+    }
+
+    private static boolean sameMessage(MessageText old, MessageText node) {
+        return old.id.equals(node.id)
+               && Objects.equals(old.text, node.text)
+               && Float.compare(old.textSize, node.textSize) == 0
+               && old.tintColor == node.tintColor
+               && old.aloud == node.aloud
+               && old.isFirstMessage == node.isFirstMessage
+               && old.isInboundMessage == node.isInboundMessage;
+    }
+
+    private static boolean sameImage(MessageImage old, MessageImage node) {
+        return old.id.equals(node.id)
+               && old.image == node.image
+               && old.tintColor == node.tintColor;
+    }
+
+    private static boolean sameAction(@Nullable ActionText old, @Nullable ActionText node) {
+        if (old == node) return true;
+        if (old == null || node == null) return false;
+        return old.id.equals(node.id)
+               && Objects.equals(old.text, node.text)
+               && old.textAfter == node.textAfter
+               && Float.compare(old.textSize, node.textSize) == 0
+               && Arrays.equals(old.contentDescriptions, node.contentDescriptions)
+               && old.order == node.order
+               && old.skipTracking == node.skipTracking
+               && old.skipSelected == node.skipSelected;
+    }
+
+    private static boolean sameAction(ActionIcon old, ActionIcon node) {
+        return old.id.equals(node.id)
+               && old.icon == node.icon
+               && old.iconAfter == node.iconAfter
+               && Objects.equals(old.text, node.text)
+               && old.tintColor == node.tintColor
+               && Arrays.equals(old.contentDescriptions, node.contentDescriptions)
+               && old.order == node.order
+               && old.skipTracking == node.skipTracking
+               && old.skipSelected == node.skipSelected;
+    }
+
+    private static boolean sameAction(ActionSeekBar old, ActionSeekBar node) {
+        return old.id.equals(node.id)
+               && sameAction(old.confirmationAction, node.confirmationAction)
+               && old.skipTracking == node.skipTracking
+               && old.skipSelected == node.skipSelected
+               && old.maxProgress == node.maxProgress
+               && old.progress == node.progress;
+    }
+
+    private static boolean sameAction(AutoCompleteAction old, AutoCompleteAction node) {
+        if (!old.id.equals(node.id)
+            || Float.compare(old.textSize, node.textSize) != 0
+            || old.textLines != node.textLines
+            || old.charCount != node.charCount
+            || !Objects.equals(old.hints, node.hints)
+            || old.order != node.order
+            || old.skipTracking != node.skipTracking
+            || old.skipSelected != node.skipSelected) return false;
+        List<ActionText> oldActions = old.actions;
+        List<ActionText> actions = node.actions;
+        if (oldActions == actions) return true;
+        if (oldActions == null || actions == null || oldActions.size() != actions.size()) return false;
+        for (int i = 0, size = actions.size(); i < size; i++) {
+            if (!sameAction(oldActions.get(i), actions.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameAction(ActionMultiChoice old, ActionMultiChoice node) {
+        if (!old.id.equals(node.id)
+            || !sameAction(old.confirmationAction, node.confirmationAction)
+            || old.skipTracking != node.skipTracking
+            || old.skipSelected != node.skipSelected) return false;
+        List<ActionChipChoice> oldChoices = old.actionChipChoices;
+        List<ActionChipChoice> choices = node.actionChipChoices;
+        if (oldChoices == choices) return true;
+        if (oldChoices == null || choices == null || oldChoices.size() != choices.size()) return false;
+        for (int i = 0, size = choices.size(); i < size; i++) {
+            if (!sameChoice(oldChoices.get(i), choices.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameChoice(ActionChipChoice old, ActionChipChoice node) {
+        // Whether the option is selected belongs to the session, not to the flow
+        return old.id.equals(node.id)
+               && Objects.equals(old.text, node.text)
+               && old.icon == node.icon
+               && old.iconTintColor == node.iconTintColor
+               && Float.compare(old.textSize, node.textSize) == 0
+               && Arrays.equals(old.contentDescriptions, node.contentDescriptions)
+               && old.order == node.order;
+    }
+
+    private static boolean sameList(@NonNull ActionList old, @NonNull ActionList node) {
+        if (old.size() != node.size()) return false;
+        for (int i = 0, size = node.size(); i < size; i++) {
+            if (!same(old.get(i), node.get(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,7 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+
+public interface NodeFactory {
+    @NonNull Node create();
+}
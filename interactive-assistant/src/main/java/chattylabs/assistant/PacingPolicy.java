@@ -0,0 +1,33 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Decides how long the assistant waits before showing every node,
+ * set with {@link InteractiveAssistant.IOptional#withPacingPolicy(PacingPolicy)}.
+ */
+public interface PacingPolicy {
+
+    /**
+     * @param previous the node displayed before, if any.
+     * @param node     the node about to be displayed.
+     * @param seen     whether the node was already displayed to the user.
+     * @return the delay in milliseconds.
+     */
+    long getDelay(@Nullable Node previous, @NonNull Node node, boolean seen);
+
+    /**
+     * Waits the same time before every node.
+     */
+    static PacingPolicy fixed(long delayMillis) {
+        return (previous, node, seen) -> delayMillis;
+    }
+
+    /**
+     * Gives the user time to read the previous message, and does not wait for nodes already seen.
+     */
+    static PacingPolicy readingSpeed(int charactersPerSecond) {
+        return new ReadingSpeedPacingPolicy(charactersPerSecond);
+    }
+}
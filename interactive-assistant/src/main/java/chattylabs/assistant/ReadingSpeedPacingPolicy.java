@@ -0,0 +1,32 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * {@link PacingPolicy} that waits in proportion to the length of the previous message.
+ */
+final class ReadingSpeedPacingPolicy implements PacingPolicy {
+
+    static final int DEFAULT_CHARACTERS_PER_SECOND = 25;
+    static final long MIN_DELAY = 300L;
+    static final long MAX_DELAY = 1500L;
+
+    private final int charactersPerSecond;
+
+    ReadingSpeedPacingPolicy(int charactersPerSecond) {
+        if (charactersPerSecond <= 0) {
+            throw new IllegalArgumentException("The reading speed must be greater than 0");
+        }
+        this.charactersPerSecond = charactersPerSecond;
+    }
+
+    @Override
+    public long getDelay(@Nullable Node previous, @NonNull Node node, boolean seen) {
+        if (seen) return 0;
+        String text = previous instanceof HasText ? ((HasText) previous).getText() : null;
+        if (text == null) return MIN_DELAY;
+        long delay = text.length() * 1000L / charactersPerSecond;
+        return Math.max(MIN_DELAY, Math.min(MAX_DELAY, delay));
+    }
+}
@@ -0,0 +1,32 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Runs the delayed steps of the conversation on the main thread.
+ * <p>
+ * The default scheduler is shared by every {@link InteractiveAssistant} and posts to the
+ * main Looper, so no thread is created. Another one, such as a {@link VirtualScheduler},
+ * can be set with {@link InteractiveAssistant.IOptional#withScheduler(Scheduler)}.
+ * Every delay of the conversation, including the one of the loading row, goes through it.
+ */
+public interface Scheduler {
+
+    interface Token {
+        /**
+         * Prevents the runnable from running if it did not run yet.
+         */
+        void cancel();
+    }
+
+    @NonNull Token schedule(@NonNull Runnable runnable, long delayMillis);
+
+    /**
+     * @return the time of the clock the delays are measured with, in milliseconds.
+     */
+    long uptimeMillis();
+
+    static Scheduler mainThread() {
+        return MainThreadScheduler.INSTANCE;
+    }
+}
@@ -0,0 +1,105 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps the pending work of one conversation on top of a shared {@link Scheduler}.
+ * <p>
+ * When paused, every pending task is cancelled and the time it still had to wait is kept,
+ * so resuming runs it after exactly that time instead of a full new delay.
+ * It must be used from the main thread.
+ */
+final class SessionScheduler {
+
+    static final class Task {
+        private final Runnable runnable;
+        private long dueTime;
+        private long remaining;
+        @Nullable
+        private Scheduler.Token token;
+
+        private Task(Runnable runnable) {
+            this.runnable = runnable;
+        }
+    }
+
+    private final Scheduler scheduler;
+    private final ArrayList<Task> tasks = new ArrayList<>();
+    private boolean paused;
+
+    SessionScheduler(@NonNull Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    Task schedule(@NonNull Runnable runnable, long delayMillis) {
+        Task task = new Task(runnable);
+        tasks.add(task);
+        start(task, delayMillis);
+        return task;
+    }
+
+    private void start(Task task, long delayMillis) {
+        if (paused) {
+            task.remaining = delayMillis;
+            return;
+        }
+        task.dueTime = scheduler.uptimeMillis() + delayMillis;
+        task.token = scheduler.schedule(() -> {
+            tasks.remove(task);
+            task.token = null;
+            task.runnable.run();
+        }, delayMillis);
+    }
+
+    void cancel(@Nullable Task task) {
+        if (task == null || !tasks.remove(task)) return;
+        if (task.token != null) {
+            task.token.cancel();
+            task.token = null;
+        }
+    }
+
+    /**
+     * Runs the task now, unless it already ran or was cancelled.
+     */
+    void runNow(@NonNull Task task) {
+        if (!tasks.contains(task)) return;
+        cancel(task);
+        task.runnable.run();
+    }
+
+    void pause() {
+        if (paused) return;
+        paused = true;
+        long now = scheduler.uptimeMillis();
+        for (Task task : tasks) {
+            if (task.token != null) {
+                task.token.cancel();
+                task.token = null;
+            }
+            task.remaining = Math.max(0, task.dueTime - now);
+        }
+    }
+
+    void resume() {
+        if (!paused) return;
+        paused = false;
+        for (Task task : new ArrayList<>(tasks)) start(task, task.remaining);
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    void cancelAll() {
+        for (Task task : tasks) {
+            if (task.token != null) task.token.cancel();
+            task.token = null;
+        }
+        tasks.clear();
+        paused = false;
+    }
+}
@@ -3,5 +3,10 @@ package chattylabs.assistant;
 import androidx.annotation.NonNull;
 
 public interface Target {
+    /**
+     * Only connects to the next nodes when the condition is true for the session variables,
+     * see {@link InteractiveAssistant#setVariable(String, Object)}.
+     */
+    Target when(@NonNull String condition);
     void to(@NonNull Node node, Node... optNodes);
 }
@@ -5,6 +5,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.StringRes;
 
 public interface TargetId {
+    /**
+     * Only connects to the next nodes when the condition is true for the session variables,
+     * see {@link InteractiveAssistant#setVariable(String, Object)}.
+     */
+    TargetId when(@NonNull String condition);
     void to(@NonNull String id, String... ids);
     void to(@StringRes int id, @StringRes Integer... ids);
 }
@@ -0,0 +1,68 @@
+package chattylabs.assistant;
+
+import android.text.Spanned;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import androidx.emoji.text.EmojiCompat;
+
+/**
+ * Bounded cache, shared by every view builder, of the text of the nodes once parsed
+ * with {@link InteractiveAssistant#formatHTML(CharSequence)} and
+ * {@link InteractiveAssistant#processEmoji(CharSequence)}.
+ * <p>
+ * Entries are kept by node id, or by text for the nodes without id, and are only
+ * used while the node has the same text.
+ */
+final class TextCache {
+
+    static final int DEFAULT_SIZE = 256;
+
+    private static final class Entry {
+        final String text;
+        final CharSequence value;
+
+        Entry(String text, CharSequence value) {
+            this.text  = text;
+            this.value = value;
+        }
+    }
+
+    private static final LruCache<String, Entry> cache = new LruCache<>(DEFAULT_SIZE);
+
+    private TextCache() {}
+
+    /**
+     * @return the text ready to be displayed.
+     */
+    static CharSequence get(@Nullable String id, @NonNull CharSequence text) {
+        // Texts given as spans are displayed as they are and not worth keeping
+        if (!(text instanceof String)) return process(text);
+        String key = id != null ? id : "\u0000" + text;
+        Entry entry = cache.get(key);
+        if (entry != null && entry.text.equals(text)) return entry.value;
+        CharSequence value = process(text);
+        // Until the emoji font is loaded the emojis are not replaced yet
+        if (isEmojiReady()) cache.put(key, new Entry((String) text, value));
+        return value;
+    }
+
+    static void invalidate(@NonNull String id) {
+        cache.remove(id);
+    }
+
+    private static CharSequence process(CharSequence text) {
+        Spanned span = InteractiveAssistant.formatHTML(text);
+        return InteractiveAssistant.processEmoji(span);
+    }
+
+    private static boolean isEmojiReady() {
+        try {
+            int state = EmojiCompat.get().getLoadState();
+            return state == EmojiCompat.LOAD_STATE_SUCCEEDED || state == EmojiCompat.LOAD_STATE_FAILED;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+}
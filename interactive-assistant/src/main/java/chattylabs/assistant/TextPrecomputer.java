@@ -0,0 +1,69 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+import androidx.core.text.PrecomputedTextCompat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures the text of the scheduled messages on a background thread, while the
+ * assistant waits to show them, so binding them only attaches the computed layout.
+ * <p>
+ * The text metrics are taken from the last message bound with the default text size,
+ * and a message is only precomputed once they are known.
+ */
+final class TextPrecomputer {
+
+    private static final int CACHE_SIZE = 16;
+
+    private static final class Entry {
+        final String text;
+        final PrecomputedTextCompat value;
+
+        Entry(String text, PrecomputedTextCompat value) {
+            this.text  = text;
+            this.value = value;
+        }
+    }
+
+    private static final LruCache<String, Entry> cache = new LruCache<>(CACHE_SIZE);
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "InteractiveAssistantText");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    @Nullable
+    private static volatile PrecomputedTextCompat.Params params;
+
+    private TextPrecomputer() {}
+
+    static void setParams(@NonNull PrecomputedTextCompat.Params textParams) {
+        params = textParams;
+    }
+
+    static void prepare(@NonNull MessageText message) {
+        final PrecomputedTextCompat.Params textParams = params;
+        final String id = message.id;
+        final String text = message.text;
+        if (textParams == null || message.textSize > 0 || text == null) return;
+        executor.execute(() -> {
+            CharSequence processed = TextCache.get(id, text);
+            cache.put(id, new Entry(text, PrecomputedTextCompat.create(processed, textParams)));
+        });
+    }
+
+    /**
+     * @return the precomputed text of the message, or null if it is not ready
+     * or was measured for other params.
+     */
+    @Nullable
+    static PrecomputedTextCompat get(@NonNull MessageText message, @NonNull PrecomputedTextCompat.Params textParams) {
+        Entry entry = cache.get(message.id);
+        if (entry == null || !entry.text.equals(message.text)) return null;
+        return textParams.equals(entry.value.getParams()) ? entry.value : null;
+    }
+}
@@ -8,4 +8,21 @@ abstract class ViewAdapter<VH extends RecyclerView.ViewHolder>
         extends RecyclerView.Adapter<VH> {
     public abstract List<Node> getItems();
     public abstract AssistantAdapter.OnActionListener getActionListener();
+    private ActionViewPool actionViewPool;
+
+    /**
+     * @return the views of the Actions released by the rows of this adapter,
+     * which are not shared with any other adapter unless this method is overridden.
+     */
+    public ActionViewPool getActionViewPool() {
+        if (actionViewPool == null) actionViewPool = new ActionViewPool();
+        return actionViewPool;
+    }
+
+    /**
+     * Updates the selected options displayed by the given row.
+     */
+    public void notifySelectionChanged(int position) {
+        notifyItemChanged(position);
+    }
 }
@@ -1,13 +1,31 @@
 package chattylabs.assistant;
 
+import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.List;
+
 interface ViewHolderBuilder {
     RecyclerView.ViewHolder createViewHolder(ViewGroup viewGroup, int viewType);
 
+    /**
+     * Creates the holder of a view already inflated from its layout.
+     */
+    RecyclerView.ViewHolder createViewHolder(View view);
+
     interface Binder {
         void onBind(ViewAdapter adapter, int position);
     }
+
+    /**
+     * Binder that can update only the part of the view a payload refers to.
+     */
+    interface PayloadBinder extends Binder {
+        /**
+         * @return false if the payloads are not handled and the view must be fully bound.
+         */
+        boolean onBind(ViewAdapter adapter, int position, List<Object> payloads);
+    }
 }
@@ -0,0 +1,118 @@
+package chattylabs.assistant;
+
+import android.view.LayoutInflater;
+import android.view.View;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Inflates the rows of the known layouts on a background thread, the way AsyncLayoutInflater
+ * does, and gives their holders to the {@link RecyclerView.RecycledViewPool}, so the first rows
+ * of each type are not inflated while the conversation is displayed.
+ * <p>
+ * A layout that cannot be inflated on the background thread is inflated on the main thread.
+ */
+final class ViewHolderPreInflater {
+
+    // The pool keeps 5 holders of each type by default
+    private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private static final int[] LAYOUTS = {
+            R.layout.item_interactive_assistant_message_inbound_first,
+            R.layout.item_interactive_assistant_message_inbound,
+            R.layout.item_interactive_assistant_message_outbound_first,
+            R.layout.item_interactive_assistant_message_outbound,
+            R.layout.item_interactive_assistant_message_outbound_image,
+            R.layout.item_interactive_assistant_action_list,
+            R.layout.item_interactive_assistant_action_list_frame,
+            R.layout.item_interactive_assistant_loading,
+            R.layout.item_interactive_assistant_action_text_selected,
+            R.layout.item_interactive_assistant_action_icon_selected,
+            R.layout.item_interactive_assistant_action_multichoice
+    };
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "InteractiveAssistantInflater");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private ViewHolderPreInflater() {}
+
+    private static ViewHolderBuilder getViewHolderBuilder(@LayoutRes int layout) {
+        if (layout == R.layout.item_interactive_assistant_message_outbound_image)
+            return MessageImageViewHolderBuilder.build();
+        if (layout == R.layout.item_interactive_assistant_action_list
+            || layout == R.layout.item_interactive_assistant_action_list_frame)
+            return ActionListViewHolderBuilder.build();
+        if (layout == R.layout.item_interactive_assistant_loading)
+            return LoadingViewHolderBuilder.build();
+        if (layout == R.layout.item_interactive_assistant_action_text_selected)
+            return FeedbackActionTextViewHolderBuilder.build();
+        if (layout == R.layout.item_interactive_assistant_action_icon_selected)
+            return FeedbackActionIconViewHolderBuilder.build();
+        if (layout == R.layout.item_interactive_assistant_action_multichoice)
+            return FeedbackActionMultiChoiceViewHolderBuilder.build();
+        return MessageTextViewHolderBuilder.build();
+    }
+
+    /**
+     * Must be called from the main thread, once the adapter is set to the RecyclerView.
+     *
+     * @param count the number of holders of each layout.
+     */
+    static void preInflate(@NonNull RecyclerView recyclerView, @NonNull AssistantAdapter adapter, int count) {
+        if (count <= 0) return;
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        for (int layout : LAYOUTS) {
+            adapter.registerViewHolder(layout, getViewHolderBuilder(layout));
+            pool.setMaxRecycledViews(layout, Math.max(count, DEFAULT_MAX_RECYCLED_VIEWS));
+        }
+        // LayoutInflater is not thread safe, the background thread uses its own
+        final LayoutInflater inflater = LayoutInflater.from(recyclerView.getContext())
+                .cloneInContext(recyclerView.getContext());
+        executor.execute(() -> {
+            for (int layout : LAYOUTS) {
+                for (int i = 0; i < count; i++) {
+                    View view;
+                    try {
+                        view = inflater.inflate(layout, recyclerView, false);
+                    } catch (RuntimeException e) {
+                        // Some views need a Looper, the rest of this layout is inflated on the main thread
+                        final int remaining = count - i;
+                        recyclerView.post(() -> inflateOnMainThread(recyclerView, adapter, layout, remaining));
+                        break;
+                    }
+                    final View inflated = view;
+                    recyclerView.post(() -> recycle(recyclerView, adapter, layout, inflated));
+                }
+            }
+        });
+    }
+
+    private static void inflateOnMainThread(RecyclerView recyclerView, AssistantAdapter adapter,
+                                            @LayoutRes int layout, int count) {
+        LayoutInflater inflater = LayoutInflater.from(recyclerView.getContext());
+        for (int i = 0; i < count; i++) {
+            try {
+                recycle(recyclerView, adapter, layout, inflater.inflate(layout, recyclerView, false));
+            } catch (RuntimeException e) {
+                // It is inflated when first displayed instead
+                return;
+            }
+        }
+    }
+
+    private static void recycle(RecyclerView recyclerView, AssistantAdapter adapter,
+                                @LayoutRes int layout, View view) {
+        // The pool is cleared when another adapter is set
+        if (recyclerView.getAdapter() != adapter) return;
+        recyclerView.getRecycledViewPool().putRecycledView(adapter.createViewHolder(recyclerView, layout, view));
+    }
+}
@@ -0,0 +1,89 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+
+import java.util.PriorityQueue;
+
+/**
+ * {@link Scheduler} driven by a virtual clock that only moves when it is advanced,
+ * so a whole conversation can run instantly and its timing can be measured exactly.
+ * The tasks run on the thread that advances the clock.
+ */
+public final class VirtualScheduler implements Scheduler {
+
+    private static final class Task implements Comparable<Task> {
+        final Runnable runnable;
+        final long dueTime;
+        final long sequence;
+        boolean cancelled;
+
+        Task(Runnable runnable, long dueTime, long sequence) {
+            this.runnable = runnable;
+            this.dueTime  = dueTime;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            // Tasks due at the same time run in the order they were scheduled
+            if (dueTime != other.dueTime) return dueTime < other.dueTime ? -1 : 1;
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private long now;
+    private long sequence;
+
+    @NonNull @Override
+    public Token schedule(@NonNull Runnable runnable, long delayMillis) {
+        Task task = new Task(runnable, now + Math.max(0, delayMillis), sequence++);
+        tasks.add(task);
+        return () -> task.cancelled = true;
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return now;
+    }
+
+    /**
+     * Moves the clock forward, running every task that becomes due on the way.
+     */
+    public void advanceBy(long millis) {
+        long target = now + millis;
+        Task task;
+        while ((task = tasks.peek()) != null && task.dueTime <= target) {
+            tasks.poll();
+            if (task.cancelled) continue;
+            now = task.dueTime;
+            task.runnable.run();
+        }
+        now = target;
+    }
+
+    /**
+     * Moves the clock forward until there are no tasks left.
+     *
+     * @return the virtual time elapsed, in milliseconds.
+     */
+    public long runUntilIdle() {
+        long start = now;
+        Task task;
+        while ((task = tasks.poll()) != null) {
+            if (task.cancelled) continue;
+            now = task.dueTime;
+            task.runnable.run();
+        }
+        return now - start;
+    }
+
+    /**
+     * @return the number of tasks waiting to run.
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (Task task : tasks) if (!task.cancelled) count++;
+        return count;
+    }
+}
@@ -0,0 +1,52 @@
+package chattylabs.assistant;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ActionMultiChoiceTest {
+
+    private static ActionChipChoice option(String id, int order) {
+        return new ActionChipChoice.Builder(id).setText(id).setOrder(order).build();
+    }
+
+    private static ActionMultiChoice build(ActionChipChoice... options) {
+        ActionMultiChoice.Builder builder = new ActionMultiChoice.Builder("choice")
+                .setConfirmationAction(new ActionText.Builder("confirm").setText("confirm").build());
+        for (ActionChipChoice option : options) builder.addOption(option);
+        return builder.build();
+    }
+
+    private static List<String> ids(List<ActionChipChoice> options) {
+        List<String> ids = new ArrayList<>();
+        for (ActionChipChoice option : options) ids.add(option.getId());
+        return ids;
+    }
+
+    @Test
+    public void build_sortsTheOptionsByOrder() {
+        ActionMultiChoice action = build(option("c", 3), option("a", 1), option("b", 2));
+
+        assertEquals(Arrays.asList("a", "b", "c"), ids(action.getActionChipChoices()));
+    }
+
+    @Test
+    public void feedback_keepsTheOrderOfTheOptions() {
+        ActionMultiChoice action = build(option("b", 2), option("a", 1));
+
+        FeedbackActionMultiChoice feedback = (FeedbackActionMultiChoice) action.buildActionFeedback();
+        assertEquals(Arrays.asList("a", "b"), ids(feedback.actionChipChoices));
+    }
+
+    @Test
+    public void getActionViewBuilder_returnsTheSameBuilder() {
+        ActionMultiChoice action = build(option("a", 1));
+
+        assertSame(action.getActionViewBuilder(), action.getActionViewBuilder());
+    }
+}
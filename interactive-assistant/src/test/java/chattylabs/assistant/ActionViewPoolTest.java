@@ -0,0 +1,83 @@
+package chattylabs.assistant;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class ActionViewPoolTest {
+
+    private static final int LAYOUT = R.layout.item_interactive_assistant_action_chip;
+
+    private final ActionViewPool pool = new ActionViewPool();
+    private Activity activity;
+    private FrameLayout parent;
+
+    @Before
+    public void setUp() {
+        activity = Robolectric.setupActivity(Activity.class);
+        parent = new FrameLayout(activity);
+    }
+
+    private View pooledView() {
+        View view = new View(activity);
+        view.setTag(R.id.interactive_assistant_action_layout, LAYOUT);
+        return view;
+    }
+
+    @Test
+    public void obtain_reusesTheReleasedView() {
+        View view = pooledView();
+        view.setOnClickListener(v -> {});
+
+        pool.release(view);
+        assertFalse(view.hasOnClickListeners());
+        assertSame(view, pool.obtain(parent, LAYOUT));
+    }
+
+    @Test
+    public void release_ignoresTheViewsNotObtainedFromAPool() {
+        pool.setMaxViews(LAYOUT, 0);
+        View view = new View(activity);
+        view.setOnClickListener(v -> {});
+
+        pool.release(view);
+        assertTrue(view.hasOnClickListeners());
+    }
+
+    @Test
+    public void setMaxViews_dropsTheViewsOverTheLimit() {
+        View first = pooledView();
+        View second = pooledView();
+        View third = pooledView();
+        pool.release(first);
+        pool.release(second);
+
+        pool.setMaxViews(LAYOUT, 1);
+        pool.release(third);
+        assertSame(first, pool.obtain(parent, LAYOUT));
+        assertNotSame(second, pool.obtain(parent, LAYOUT));
+    }
+
+    @Test
+    public void releaseChildren_emptiesTheGroup() {
+        View child = pooledView();
+        parent.addView(child);
+
+        pool.releaseChildren(parent);
+        assertEquals(0, parent.getChildCount());
+        assertSame(child, pool.obtain(parent, LAYOUT));
+    }
+}
@@ -0,0 +1,248 @@
+package chattylabs.assistant;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.flexbox.FlexboxLayout;
+import com.google.android.material.chip.Chip;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import chattylabs.conversations.SpeechRecognizer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class AssistantAdapterTest {
+
+    private final AssistantAdapter adapter = new AssistantAdapter((view, action) -> {});
+
+    /**
+     * @return the ranges inserted into the adapter from now on, as {start, count}.
+     */
+    private static List<int[]> insertions(AssistantAdapter adapter) {
+        List<int[]> inserted = new ArrayList<>();
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                inserted.add(new int[]{positionStart, itemCount});
+            }
+        });
+        return inserted;
+    }
+
+    @Test
+    public void postItem_insertsTheItemsOfAFrameAtOnce() {
+        List<int[]> inserted = insertions(adapter);
+        adapter.postItem(TestAssistants.message("first"));
+        adapter.postItem(TestAssistants.message("second"));
+        adapter.postItem(TestAssistants.message("third"));
+        assertTrue(inserted.isEmpty());
+        assertEquals(0, adapter.getItemCount());
+
+        // The frame starts
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, inserted.size());
+        assertArrayEquals(new int[]{0, 3}, inserted.get(0));
+        assertEquals(3, adapter.getItemCount());
+        assertEquals("third", ((HasId) adapter.getItem(2)).getId());
+    }
+
+    @Test
+    public void lookupsByPosition_insertThePostedItemsFirst() {
+        adapter.addItem(TestAssistants.message("first"));
+        List<int[]> inserted = insertions(adapter);
+        adapter.postItem(TestAssistants.message("second"));
+        adapter.postItem(TestAssistants.message("third"));
+
+        assertEquals(2, adapter.getLastPositionOf(MessageText.class));
+        assertEquals(1, inserted.size());
+        assertArrayEquals(new int[]{1, 2}, inserted.get(0));
+        // The frame has nothing left to insert
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, inserted.size());
+
+        adapter.postItem(TestAssistants.message("fourth"));
+        adapter.removeLastItem();
+        assertEquals(2, inserted.size());
+        assertEquals(3, adapter.getItemCount());
+        assertEquals("third", ((HasId) adapter.getItem(2)).getId());
+    }
+
+    private final List<Runnable> diffs = new ArrayList<>();
+
+    /**
+     * @return an adapter in diffing mode whose diffs only run on {@link #runDiffs()}.
+     */
+    private AssistantAdapter diffingAdapter() {
+        return new AssistantAdapter((view, action) -> {}, true, diffs::add);
+    }
+
+    private void runDiffs() {
+        while (!diffs.isEmpty()) diffs.remove(0).run();
+        // The results are dispatched on the main thread
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    @Test
+    public void diffing_displaysTheLatestItemsOnceDiffed() {
+        AssistantAdapter adapter = diffingAdapter();
+        MessageText first = TestAssistants.message("first");
+        MessageText second = TestAssistants.message("second");
+        adapter.addItem(first);
+        runDiffs();
+
+        adapter.addItem(second);
+        assertEquals(Arrays.asList(first, second), adapter.getLatestItems());
+        assertEquals(Collections.singletonList(first), new ArrayList<>(adapter.getItems()));
+        assertEquals(1, adapter.getItemCount());
+
+        runDiffs();
+        assertEquals(Arrays.asList(first, second), new ArrayList<>(adapter.getItems()));
+        assertEquals(2, adapter.getItemCount());
+    }
+
+    @Test
+    public void diffing_keepsTheRowIdOfANodeWithTheSameId() {
+        AssistantAdapter adapter = diffingAdapter();
+        MessageText first = TestAssistants.message("first");
+        adapter.addItem(first);
+        adapter.addItem(TestAssistants.message("second"));
+        runDiffs();
+        assertTrue(adapter.hasStableIds());
+        long firstId = adapter.getItemId(0);
+        long secondId = adapter.getItemId(1);
+        assertNotEquals(firstId, secondId);
+
+        MessageText updated = new MessageText.Builder("second").setText("Updated").build();
+        adapter.setItem(1, updated);
+        runDiffs();
+        assertSame(updated, adapter.getItem(1));
+        assertEquals(secondId, adapter.getItemId(1));
+
+        adapter.setItem(1, TestAssistants.message("other"));
+        runDiffs();
+        assertNotEquals(secondId, adapter.getItemId(1));
+        assertEquals(firstId, adapter.getItemId(0));
+
+        // The same node displayed twice gets two rows
+        adapter.addItem(first);
+        runDiffs();
+        assertSame(first, adapter.getItem(2));
+        assertNotEquals(firstId, adapter.getItemId(2));
+    }
+
+    @Test
+    public void notifySelectionChanged_notifiesASelectionPayload() {
+        List<Object> payloads = new ArrayList<>();
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                assertEquals(3, positionStart);
+                assertEquals(1, itemCount);
+                payloads.add(payload);
+            }
+        });
+
+        adapter.notifySelectionChanged(3);
+        assertEquals(1, payloads.size());
+        assertTrue(AssistantAdapter.isSelectionOnly(payloads));
+        assertTrue(AssistantAdapter.isSelectionOnly(Arrays.asList(payloads.get(0), payloads.get(0))));
+    }
+
+    @Test
+    public void isSelectionOnly_isFalseForAFullBind() {
+        List<Object> payloads = new ArrayList<>();
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                payloads.add(payload);
+            }
+        });
+        adapter.notifySelectionChanged(0);
+
+        assertFalse(AssistantAdapter.isSelectionOnly(Collections.emptyList()));
+        assertFalse(AssistantAdapter.isSelectionOnly(Arrays.asList(payloads.get(0), new Object())));
+    }
+
+    @Test
+    public void createViewHolder_wrapsThePreInflatedView() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        int layout = R.layout.item_interactive_assistant_loading;
+        adapter.registerViewHolder(layout, LoadingViewHolderBuilder.build());
+        View view = new View(activity);
+
+        RecyclerView.ViewHolder holder = adapter.createViewHolder(new FrameLayout(activity), layout, view);
+        assertSame(view, holder.itemView);
+        // The view type lets the RecycledViewPool give the holder to a row of this layout
+        assertEquals(layout, holder.getItemViewType());
+        assertTrue(holder instanceof LoadingViewHolderBuilder.ChatLoadingViewHolder);
+    }
+
+    @Test
+    public void selectingAnOption_onlyUpdatesTheChips() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        List<String> changes = new ArrayList<>();
+        ActionMultiChoice multiChoice = new ActionMultiChoice.Builder("choice")
+                .addOption(new ActionChipChoice.Builder("first").setText("first").setOrder(1).build())
+                .addOption(new ActionChipChoice.Builder("second").setText("second").setOrder(2)
+                                   .setContentDescriptions(new String[]{"second"}).build())
+                .setConfirmationAction(new ActionText.Builder("confirm").setText("confirm").build())
+                .setOnOptionChangeListener((option, selected) -> changes.add(option.getId() + "=" + selected))
+                .build();
+        ActionList actionList = new ActionList();
+        actionList.add(multiChoice);
+        adapter.addItem(TestAssistants.message("question"));
+        adapter.addItem(actionList);
+        List<Object> payloads = new ArrayList<>();
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                assertEquals(1, positionStart);
+                payloads.add(payload);
+            }
+        });
+        RecyclerView.ViewHolder holder = adapter.createViewHolder(
+                TestAssistants.recyclerView(activity), actionList.getViewLayout());
+        adapter.onBindViewHolder(holder, 1);
+        FlexboxLayout options = (FlexboxLayout) ((ViewGroup) ((ViewGroup) holder.itemView).getChildAt(0)).getChildAt(0);
+
+        // Tapped by the user
+        ((Chip) options.getChildAt(0)).setChecked(true);
+        assertEquals(Collections.singletonList("first=true"), changes);
+        assertEquals(1, payloads.size());
+        assertTrue(AssistantAdapter.isSelectionOnly(payloads));
+
+        // Said by the user
+        SpeechRecognizer recognizer = mock(SpeechRecognizer.class);
+        when(recognizer.matches("the second", "second")).thenReturn(true);
+        assertEquals(CanCheckContentDescriptions.REPEAT, multiChoice.matches(recognizer, "the second"));
+        assertEquals(Arrays.asList("first=true", "second=true"), changes);
+        assertEquals(2, payloads.size());
+        assertFalse(((Chip) options.getChildAt(1)).isChecked());
+
+        assertTrue(((ViewHolderBuilder.PayloadBinder) holder).onBind(adapter, 1, payloads));
+        assertTrue(((Chip) options.getChildAt(0)).isChecked());
+        assertTrue(((Chip) options.getChildAt(1)).isChecked());
+    }
+}
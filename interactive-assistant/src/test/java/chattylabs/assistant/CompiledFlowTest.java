@@ -0,0 +1,221 @@
+package chattylabs.assistant;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledFlowTest {
+
+    @Test
+    public void compile_keepsTheEdgesOfEveryNode() {
+        Random random = new Random(7);
+        FlowGraph graph = new FlowGraph();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Node node = TestNodes.message("node" + i);
+            nodes.add(node);
+            graph.addNode(node);
+        }
+        for (int i = 0; i < 300; i++) {
+            graph.addEdge(nodes.get(random.nextInt(nodes.size())),
+                          nodes.get(random.nextInt(nodes.size())));
+        }
+
+        CompiledFlow flow = graph.compile();
+        assertEquals(nodes.size(), flow.size());
+        for (Node node : nodes) {
+            int index = flow.indexOf(node);
+            assertSame(node, flow.nodeAt(index));
+            assertEquals(index, flow.indexOf(((HasId) node).getId()));
+            ArrayList<Node> edges = graph.getOutgoingEdges(node);
+            int degree = edges != null ? edges.size() : 0;
+            assertEquals(degree, flow.getOutDegree(index));
+            for (int e = 0; e < degree; e++) {
+                assertSame(edges.get(e), flow.nodeAt(flow.getTarget(index, e)));
+            }
+        }
+    }
+
+    @Test
+    public void compile_isCachedUntilTheGraphChanges() {
+        FlowGraph graph = new FlowGraph();
+        Node a = TestNodes.message("a");
+        Node b = TestNodes.message("b");
+        graph.addNode(a);
+        CompiledFlow flow = graph.compile();
+        assertSame(flow, graph.compile());
+
+        graph.addNode(b);
+        graph.addEdge(b, a);
+        CompiledFlow updated = graph.compile();
+        assertFalse(flow == updated);
+        assertEquals(1, updated.getOutDegree(updated.indexOf(a)));
+        assertEquals(-1, updated.indexOf("c"));
+        assertEquals(-1, updated.indexOf(TestNodes.message("c")));
+    }
+
+    @Test
+    public void getActionList_sortedByOrder() {
+        FlowGraph graph = new FlowGraph();
+        Node message = TestNodes.message("message");
+        Node last = TestNodes.choice("last", 3);
+        Node first = TestNodes.choice("first", 1);
+        Node second = TestNodes.choice("second", 2);
+        graph.addNode(message);
+        graph.addNode(last);
+        graph.addNode(first);
+        graph.addNode(second);
+        graph.addEdge(last, message);
+        graph.addEdge(first, message);
+        graph.addEdge(second, message);
+
+        CompiledFlow flow = graph.compile();
+        int index = flow.indexOf(message);
+        assertTrue(flow.isAction(flow.getTarget(index, 0)));
+        ActionList actionList = flow.getActionList(index);
+        assertEquals(3, actionList.size());
+        assertSame(first, actionList.get(0));
+        assertSame(second, actionList.get(1));
+        assertSame(last, actionList.get(2));
+    }
+
+    @Test
+    public void getActionList_tiesKeepTheOrderOfTheirConnections() {
+        FlowGraph graph = new FlowGraph();
+        Node message = TestNodes.message("message");
+        graph.addNode(message);
+        List<Node> tied = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Node choice = TestNodes.choice("choice" + i, i % 2 == 0 ? 1 : 0);
+            graph.addNode(choice);
+            graph.addEdge(choice, message);
+            tied.add(choice);
+        }
+
+        CompiledFlow flow = graph.compile();
+        ActionList actionList = flow.getActionList(flow.indexOf(message));
+        assertEquals(tied.size(), actionList.size());
+        // The Actions with order 0 first, then the ones with order 1, each in connection order
+        for (int i = 0; i < 10; i++) {
+            assertSame(tied.get(i * 2 + 1), actionList.get(i));
+            assertSame(tied.get(i * 2), actionList.get(i + 10));
+        }
+    }
+
+    @Test
+    public void getActionList_isKeptUntilABuiltNodeLeavesTheCache() {
+        FlowGraph graph = new FlowGraph(2);
+        Node root = TestNodes.message("root");
+        Node first = new LazyNode("first", true, () -> TestNodes.choice("first", 1));
+        Node end = new LazyNode("end", false, () -> TestNodes.message("end"));
+        Node other = new LazyNode("other", false, () -> TestNodes.message("other"));
+        graph.addNode(root);
+        graph.addNode(first);
+        graph.addNode(end);
+        graph.addNode(other);
+        graph.addEdge(first, root);
+
+        CompiledFlow flow = graph.compile();
+        int index = flow.indexOf(root);
+        ActionList actionList = flow.getActionList(index);
+        assertSame(actionList, flow.getActionList(index));
+        // Fills the cache of the graph without evicting anything
+        flow.resolve(flow.indexOf("end"));
+        assertSame(actionList, flow.getActionList(index));
+
+        // Evicts the first Action
+        flow.resolve(flow.indexOf("other"));
+        assertNotSame(actionList, flow.getActionList(index));
+    }
+
+    @Test
+    public void getActionList_doesNotKeepEvictedNodes() {
+        FlowGraph graph = new FlowGraph(2);
+        Node root = TestNodes.message("root");
+        Node second = new LazyNode("second", true, () -> TestNodes.choice("second", 2));
+        Node first = new LazyNode("first", true, () -> TestNodes.choice("first", 1));
+        Node end = new LazyNode("end", false, () -> TestNodes.message("end"));
+        graph.addNode(root);
+        graph.addNode(second);
+        graph.addNode(first);
+        graph.addNode(end);
+        graph.addEdge(second, root);
+        graph.addEdge(first, root);
+        graph.addEdge(end, second);
+
+        CompiledFlow flow = graph.compile();
+        int index = flow.indexOf(root);
+        ActionList before = flow.getActionList(index);
+        // Evicts the first Action from the cache of the graph
+        flow.resolve(flow.indexOf("end"));
+
+        ActionList after = flow.getActionList(index);
+        assertEquals(2, after.size());
+        assertSame(flow.resolve(flow.indexOf("first")), after.get(0));
+        assertSame(flow.resolve(flow.indexOf("second")), after.get(1));
+        assertNotSame(before.get(0), after.get(0));
+    }
+
+    @Test
+    public void route_triesTheConditionsFirst() {
+        FlowGraph graph = new FlowGraph();
+        Node root = TestNodes.message("root");
+        Node fallback = TestNodes.message("fallback");
+        Node adult = TestNodes.message("adult");
+        Node pro = TestNodes.message("pro");
+        graph.addNode(root);
+        graph.addNode(fallback);
+        graph.addNode(adult);
+        graph.addNode(pro);
+        graph.addEdge(fallback, root);
+        graph.addEdge(adult, root, Condition.compile("age >= 18"));
+        graph.addEdge(pro, root, Condition.compile("plan == 'pro'"));
+
+        CompiledFlow flow = graph.compile();
+        int index = flow.indexOf(root);
+        Map<String, Object> variables = new HashMap<>();
+        assertEquals(flow.indexOf(fallback), flow.route(index, variables));
+        variables.put("plan", "pro");
+        assertEquals(flow.indexOf(pro), flow.route(index, variables));
+        // The conditions are tried in the order they were added
+        variables.put("age", 20);
+        assertEquals(flow.indexOf(adult), flow.route(index, variables));
+        assertEquals(-1, flow.route(flow.indexOf(pro), variables));
+    }
+
+    @Test
+    public void getActionList_onlyTheActionsWhoseConditionIsTrue() {
+        FlowGraph graph = new FlowGraph();
+        Node root = TestNodes.message("root");
+        Node always = TestNodes.choice("always", 2);
+        Node pro = TestNodes.choice("pro", 1);
+        graph.addNode(root);
+        graph.addNode(always);
+        graph.addNode(pro);
+        graph.addEdge(always, root);
+        graph.addEdge(pro, root, Condition.compile("plan == 'pro'"));
+
+        CompiledFlow flow = graph.compile();
+        int index = flow.indexOf(root);
+        Map<String, Object> variables = new HashMap<>();
+        ActionList actionList = flow.getActionList(index, variables);
+        assertEquals(1, actionList.size());
+        assertSame(always, actionList.get(0));
+
+        variables.put("plan", "pro");
+        actionList = flow.getActionList(index, variables);
+        assertEquals(2, actionList.size());
+        assertSame(pro, actionList.get(0));
+        assertSame(always, actionList.get(1));
+    }
+}
@@ -0,0 +1,90 @@
+package chattylabs.assistant;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConditionTest {
+
+    private final Map<String, Object> variables = new HashMap<>();
+
+    private boolean test(String condition) {
+        return Condition.compile(condition).test(variables);
+    }
+
+    @Test
+    public void comparisons() {
+        variables.put("plan", "pro");
+        variables.put("age", 18);
+        assertTrue(test("plan == 'pro'"));
+        assertTrue(test("plan != \"free\""));
+        assertTrue(test("age >= 18"));
+        assertTrue(test("age > 17.5"));
+        assertTrue(test("age <= 18.0"));
+        assertFalse(test("age < 18"));
+        assertTrue(test("-1 < age"));
+        assertTrue(test("plan > 'basic'"));
+    }
+
+    @Test
+    public void logicalOperators() {
+        variables.put("plan", "pro");
+        variables.put("age", 16);
+        assertTrue(test("plan == 'pro' && age < 18"));
+        assertFalse(test("plan == 'pro' && age >= 18"));
+        assertTrue(test("plan == 'free' || age < 18"));
+        assertTrue(test("!(age >= 18)"));
+        assertFalse(test("!(plan == 'pro' || age >= 18)"));
+        // && binds tighter than ||
+        assertTrue(test("plan == 'pro' || age >= 18 && plan == 'free'"));
+    }
+
+    @Test
+    public void literalsAndMissingVariables() {
+        variables.put("premium", true);
+        variables.put("name", "");
+        assertTrue(test("premium"));
+        assertTrue(test("premium == true"));
+        assertFalse(test("name"));
+        assertFalse(test("unknown"));
+        assertTrue(test("unknown == null"));
+        assertTrue(test("!unknown"));
+        // Values of different types cannot be ordered
+        assertFalse(test("name < 1"));
+    }
+
+    @Test
+    public void variablesAreReadOnEveryTest() {
+        Condition condition = Condition.compile("count >= 3");
+        variables.put("count", 2);
+        assertFalse(condition.test(variables));
+        variables.put("count", 3L);
+        assertTrue(condition.test(variables));
+        assertEquals("count >= 3", condition.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unterminatedString() {
+        Condition.compile("plan == 'pro");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingParenthesis() {
+        Condition.compile("(plan == 'pro'");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingOperand() {
+        Condition.compile("age >=");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void trailingCharacters() {
+        Condition.compile("age >= 18 18");
+    }
+}
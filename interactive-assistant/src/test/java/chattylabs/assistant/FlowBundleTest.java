@@ -0,0 +1,136 @@
+package chattylabs.assistant;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FlowBundleTest {
+
+    private static final int ACCENT = 0x7f050001;
+    private static final int ICON = 0x7f070002;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = mock(Context.class);
+        Resources resources = mock(Resources.class);
+        when(context.getApplicationContext()).thenReturn(context);
+        when(context.getPackageName()).thenReturn("chattylabs.assistant");
+        when(context.getResources()).thenReturn(resources);
+        when(resources.getIdentifier("accent", "color", "chattylabs.assistant")).thenReturn(ACCENT);
+        when(resources.getIdentifier("icon", "drawable", "chattylabs.assistant")).thenReturn(ICON);
+    }
+
+    private FlowBundle write(FlowBundle.Writer writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        return new FlowBundle(context, ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    @Test
+    public void writeAndRead_keepsTheStructure() throws IOException {
+        FlowBundle.Writer writer = new FlowBundle.Writer();
+        writer.addNode(FlowBundle.MESSAGE_TEXT, "welcome").put("text", "Hello \u263A");
+        writer.addNode(FlowBundle.ACTION_TEXT, "yes").put("text", "Yes").put("order", 1);
+        writer.addNode(FlowBundle.ACTION_TEXT, "no").put("text", "No").put("order", 2);
+        writer.addNode(FlowBundle.MESSAGE_TEXT, "end").put("text", "Bye");
+        writer.addEdge("welcome", "yes").addEdge("welcome", "no")
+              .addEdge("yes", "end").addEdge("no", "end")
+              .setRoot("welcome");
+
+        FlowBundle bundle = write(writer);
+        assertEquals(4, bundle.getNodeCount());
+        assertEquals("welcome", bundle.getId(bundle.getRoot()));
+
+        int welcome = bundle.indexOf("welcome");
+        assertEquals(FlowBundle.MESSAGE_TEXT, bundle.getType(welcome));
+        assertFalse(bundle.isAction(welcome));
+        assertEquals(2, bundle.getOutDegree(welcome));
+        assertEquals("yes", bundle.getId(bundle.getTarget(welcome, 0)));
+        assertEquals("no", bundle.getId(bundle.getTarget(welcome, 1)));
+
+        int yes = bundle.indexOf("yes");
+        assertTrue(bundle.isAction(yes));
+        assertEquals(1, bundle.getOutDegree(yes));
+        assertEquals("end", bundle.getId(bundle.getTarget(yes, 0)));
+        assertEquals(0, bundle.getOutDegree(bundle.indexOf("end")));
+        assertEquals(-1, bundle.indexOf("unknown"));
+        assertEquals("Hello \u263A", ((MessageText) bundle.buildNode(welcome)).getText());
+    }
+
+    @Test
+    public void writeAndRead_keepsTheProperties() throws IOException {
+        FlowBundle.Writer writer = new FlowBundle.Writer();
+        writer.addNode(FlowBundle.MESSAGE_TEXT, "message")
+              .put("text", "Hello")
+              .put("textSize", 18.5f)
+              .putColor("tintColor", "accent")
+              .put("aloud", true)
+              .put("inboundMessage", true);
+        writer.addNode(FlowBundle.ACTION_TEXT, "action")
+              .put("text", "Yes")
+              .put("order", 3)
+              .put("skipTracking", true)
+              .put("contentDescription", "yes")
+              .put("contentDescription", "sure");
+
+        FlowBundle bundle = write(writer);
+        MessageText message = (MessageText) bundle.buildNode(bundle.indexOf("message"));
+        assertEquals("message", message.getId());
+        assertEquals("Hello", message.getText());
+        assertEquals(18.5f, message.textSize, 0);
+        // The renderers resolve the color resource
+        assertEquals(ACCENT, message.tintColor);
+        assertTrue(message.aloud);
+        assertTrue(message.isInboundMessage);
+        assertFalse(message.isFirstMessage);
+
+        ActionText action = (ActionText) bundle.buildNode(bundle.indexOf("action"));
+        assertEquals("Yes", action.getText());
+        assertEquals(3, action.getOrder());
+        assertTrue(action.skipTracking());
+        assertFalse(action.skipSelected());
+        assertEquals(2, action.getContentDescriptions().length);
+        assertEquals("yes", action.getContentDescriptions()[0]);
+        assertEquals("sure", action.getContentDescriptions()[1]);
+    }
+
+    @Test
+    public void writeAndRead_resolvesTheResourcesByName() throws IOException {
+        FlowBundle.Writer writer = new FlowBundle.Writer();
+        writer.addNode(FlowBundle.ACTION_ICON, "action")
+              .putDrawable("icon", "icon")
+              .putColor("tintColor", "accent");
+
+        FlowBundle bundle = write(writer);
+        ActionIcon action = (ActionIcon) bundle.buildNode(bundle.indexOf("action"));
+        assertEquals(ICON, action.icon);
+        assertEquals(ACCENT, action.tintColor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void read_notABundle() {
+        new FlowBundle(context, ByteBuffer.wrap(new byte[32]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void write_unknownTarget() throws IOException {
+        FlowBundle.Writer writer = new FlowBundle.Writer();
+        writer.addNode(FlowBundle.MESSAGE_TEXT, "message").put("text", "Hello");
+        writer.addEdge("message", "unknown");
+        writer.writeTo(new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,137 @@
+package chattylabs.assistant;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static chattylabs.assistant.TestAssistants.action;
+import static chattylabs.assistant.TestAssistants.message;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class FlowGraphSharingTest {
+
+    private Activity activity;
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+
+    @Before
+    public void setUp() {
+        TestAssistants.initEmojiCompat();
+        activity = Robolectric.setupActivity(Activity.class);
+    }
+
+    private static Node buildFlow(InteractiveAssistant assistant) {
+        MessageText welcome = message("welcome");
+        ActionText yes = action("yes", 1);
+        ActionText no = action("no", 2);
+        MessageText end = message("end");
+        assistant.addNode(welcome);
+        assistant.addNode(yes);
+        assistant.addNode(no);
+        assistant.addNode(end);
+        Flow flow = assistant.prepare();
+        flow.from(welcome).to(yes, no);
+        flow.from(yes).to(end);
+        flow.from(no).to(end);
+        return welcome;
+    }
+
+    @Test
+    public void release_ofAnotherSession_keepsTheGraph() {
+        InteractiveAssistant owner = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler).build();
+        buildFlow(owner);
+        FlowGraph graph = owner.getFlowGraph();
+        InteractiveAssistant session = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler)
+                .withFlowGraph(graph).withSessionId("session").build();
+        assertSame(graph, session.getFlowGraph());
+
+        session.release();
+        assertEquals(4, graph.size());
+
+        owner.release();
+        assertEquals(0, graph.size());
+    }
+
+    @Test
+    public void sessions_keepTheirOwnCurrentNode() {
+        RecyclerView ownerView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant owner = TestAssistants.builder(ownerView, scheduler).build();
+        Node root = buildFlow(owner);
+        RecyclerView sessionView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant session = TestAssistants.builder(sessionView, scheduler)
+                .withFlowGraph(owner.getFlowGraph()).withSessionId("session").build();
+        owner.prepare().start(root);
+        session.prepare().start(root);
+        scheduler.runUntilIdle();
+        assertTrue(owner.getCurrentNode() instanceof ActionList);
+        assertTrue(session.getCurrentNode() instanceof ActionList);
+
+        TestAssistants.select(ownerView, (Action) owner.getNode("yes"));
+        scheduler.runUntilIdle();
+
+        assertSame(owner.getNode("end"), owner.getCurrentNode());
+        assertTrue(session.getCurrentNode() instanceof ActionList);
+    }
+
+    @Test
+    public void release_ofTheOwner_keepsTheGraphOfTheOtherSessions() {
+        InteractiveAssistant owner = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler).build();
+        buildFlow(owner);
+        FlowGraph graph = owner.getFlowGraph();
+        InteractiveAssistant session = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler)
+                .withFlowGraph(graph).withSessionId("session").build();
+
+        owner.release();
+        assertEquals(4, graph.size());
+        assertSame(graph.getNode("end"), session.getNode("end"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void build_onASharedGraph_requiresASessionId() {
+        InteractiveAssistant owner = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler).build();
+        buildFlow(owner);
+
+        TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler)
+                .withFlowGraph(owner.getFlowGraph()).build();
+    }
+
+    @Test
+    public void release_keepsTheSavedStateOfTheOtherSessions() {
+        InteractiveAssistant owner = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler).build();
+        Node root = buildFlow(owner);
+        RecyclerView sessionView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant session = TestAssistants.builder(sessionView, scheduler)
+                .withFlowGraph(owner.getFlowGraph()).withSessionId("session")
+                .withLastStateEnabled(true).build();
+        session.prepare().start(root);
+        scheduler.runUntilIdle();
+        TestAssistants.select(sessionView, (Action) session.getNode("no"));
+        scheduler.runUntilIdle();
+
+        owner.release();
+        SharedPreferences preferences = activity.getSharedPreferences(
+                InteractiveAssistant.INTERACTIVE_CHAT + "_session", Context.MODE_PRIVATE);
+        assertTrue(preferences.getStringSet(InteractiveAssistantImpl.VISITED_NODES, null).contains("no"));
+        assertEquals("end", preferences.getString(InteractiveAssistantImpl.LAST_VISITED_NODE, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void build_onASharedGraph_cannotSetTheNodeCacheSize() {
+        InteractiveAssistant owner = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler).build();
+        buildFlow(owner);
+
+        TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler)
+                .withFlowGraph(owner.getFlowGraph()).withSessionId("session")
+                .withNodeCacheSize(16).build();
+    }
+}
@@ -0,0 +1,275 @@
+package chattylabs.assistant;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FlowGraphTest {
+
+    @Test
+    public void outgoingEdges_sameAsScanningIncomingEdges() {
+        Random random = new Random(42);
+        FlowGraph graph = new FlowGraph();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Node node = random.nextInt(3) == 0
+                        ? TestNodes.choice("node" + i, i)
+                        : TestNodes.message("node" + i);
+            nodes.add(node);
+            graph.addNode(node);
+        }
+        // Some connections are declared twice
+        for (int i = 0; i < 600; i++) {
+            graph.addEdge(nodes.get(random.nextInt(nodes.size())),
+                          nodes.get(random.nextInt(nodes.size())));
+        }
+
+        for (Node node : nodes) {
+            List<Node> expected = scanOutgoingEdges(graph, node);
+            ArrayList<Node> actual = graph.getOutgoingEdges(node);
+            if (expected == null) {
+                assertNull(actual);
+                continue;
+            }
+            assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+            assertEquals(new HashSet<>(actual).size(), actual.size());
+        }
+    }
+
+    @Test
+    public void outgoingEdges_keepDeclarationOrder() {
+        FlowGraph graph = new FlowGraph();
+        Node from = TestNodes.message("from");
+        Node a = TestNodes.message("a");
+        Node b = TestNodes.message("b");
+        graph.addNode(from);
+        graph.addNode(b);
+        graph.addNode(a);
+        graph.addEdge(a, from);
+        graph.addEdge(b, from);
+        graph.addEdge(a, from);
+
+        ArrayList<Node> edges = graph.getOutgoingEdges(from);
+        assertEquals(2, edges.size());
+        assertSame(a, edges.get(0));
+        assertSame(b, edges.get(1));
+    }
+
+    @Test
+    public void getNode_findsTheNodeById() {
+        FlowGraph graph = new FlowGraph();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Node node = TestNodes.message("node" + i);
+            nodes.add(node);
+            graph.addNode(node);
+        }
+
+        for (int i = 0; i < nodes.size(); i++) assertSame(nodes.get(i), graph.getNode("node" + i));
+        assertNull(graph.getNode("unknown"));
+        assertSame(nodes.get(3), graph.find(TestNodes.message("node3")));
+    }
+
+    @Test
+    public void addNode_sameNodeTwice_isAddedOnce() {
+        FlowGraph graph = new FlowGraph();
+        Node node = TestNodes.message("a");
+        graph.addNode(node);
+        graph.addNode(node);
+
+        assertEquals(1, graph.size());
+        assertSame(node, graph.getNode("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addNode_duplicatedId() {
+        FlowGraph graph = new FlowGraph();
+        graph.addNode(TestNodes.message("a"));
+        graph.addNode(TestNodes.message("a"));
+    }
+
+    @Test
+    public void update_keepsTheNodesThatDidNotChange() {
+        FlowGraph graph = new FlowGraph();
+        MessageText welcome = message("welcome", "Hello");
+        MessageText question = message("question", "How are you?");
+        MessageText removed = message("removed", "Bye");
+        graph.addNode(welcome);
+        graph.addNode(question);
+        graph.addNode(removed);
+        graph.addEdge(question, welcome);
+        graph.addEdge(removed, question);
+
+        FlowGraph source = new FlowGraph();
+        MessageText newWelcome = message("welcome", "Hello");
+        MessageText newQuestion = message("question", "How is it going?");
+        MessageText added = message("added", "See you");
+        source.addNode(newWelcome);
+        source.addNode(newQuestion);
+        source.addNode(added);
+        source.addEdge(newQuestion, newWelcome);
+        source.addEdge(added, newQuestion);
+
+        Set<String> changed = graph.update(source);
+        assertEquals(new HashSet<>(Arrays.asList("question", "removed")), changed);
+        assertSame(welcome, graph.getNode("welcome"));
+        assertSame(newQuestion, graph.getNode("question"));
+        assertSame(added, graph.getNode("added"));
+        assertNull(graph.getNode("removed"));
+        assertEquals(Collections.singletonList(newQuestion), graph.getOutgoingEdges(welcome));
+        assertEquals(Collections.singletonList(added), graph.getOutgoingEdges(newQuestion));
+    }
+
+    @Test
+    public void update_rebuildsTheChangedLazyNodes() {
+        FlowGraph graph = new FlowGraph();
+        NodeFactory factory = () -> message("lazy", "Hello");
+        graph.addNode(new LazyNode("lazy", false, factory));
+        Node built = graph.resolve(graph.getNode("lazy"));
+
+        FlowGraph same = new FlowGraph();
+        same.addNode(new LazyNode("lazy", false, factory));
+        assertTrue(graph.update(same).isEmpty());
+        assertSame(built, graph.resolve(graph.getNode("lazy")));
+
+        FlowGraph changed = new FlowGraph();
+        changed.addNode(new LazyNode("lazy", false, () -> message("lazy", "Bye")));
+        assertEquals(Collections.singleton("lazy"), graph.update(changed));
+        assertEquals("Bye", ((MessageText) graph.resolve(graph.getNode("lazy"))).getText());
+    }
+
+    @Test
+    public void update_takesOverTheCallbacksOfTheKeptNodes() {
+        FlowGraph graph = new FlowGraph();
+        MessageText welcome = new MessageText.Builder("welcome").setText("Hello")
+                .setOnLoaded(() -> {}).build();
+        graph.addNode(welcome);
+        graph.addNode(new LazyNode("lazy", true, () -> new ActionText.Builder("lazy").setText("Yes")
+                .setOnSelected(action -> {}).build()));
+        ActionText built = (ActionText) graph.resolve(graph.getNode("lazy"));
+
+        // The same flow built again, with new callbacks
+        Runnable onLoaded = () -> {};
+        Action.OnSelected onSelected = action -> {};
+        FlowGraph source = new FlowGraph();
+        source.addNode(new MessageText.Builder("welcome").setText("Hello").setOnLoaded(onLoaded).build());
+        source.addNode(new LazyNode("lazy", true, () -> new ActionText.Builder("lazy").setText("Yes")
+                .setOnSelected(onSelected).build()));
+
+        assertTrue(graph.update(source).isEmpty());
+        assertSame(welcome, graph.getNode("welcome"));
+        assertSame(onLoaded, welcome.onLoaded);
+        assertSame(built, graph.resolve(graph.getNode("lazy")));
+        assertSame(onSelected, built.onSelected);
+    }
+
+    @Test
+    public void merge_addsTheStagedNodesAndTheirEdges() {
+        FlowGraph graph = new FlowGraph();
+        MessageText welcome = message("welcome", "Hello");
+        graph.addNode(welcome);
+
+        FlowGraph staged = new FlowGraph();
+        MessageText inside = message("inside", "Inside");
+        staged.addNode(welcome);
+        staged.addNode(inside);
+        staged.addEdge(inside, welcome);
+
+        graph.merge(staged);
+        assertEquals(2, graph.size());
+        assertSame(inside, graph.getNode("inside"));
+        assertEquals(Collections.singletonList(inside), graph.getOutgoingEdges(welcome));
+    }
+
+    @Test
+    public void merge_addsNothingWhenAnIdIsTaken() {
+        FlowGraph graph = new FlowGraph();
+        graph.addNode(message("welcome", "Hello"));
+        graph.addNode(message("taken", "Bye"));
+
+        FlowGraph staged = new FlowGraph();
+        staged.addNode(message("inside", "Inside"));
+        staged.addNode(message("taken", "Again"));
+        try {
+            graph.merge(staged);
+            fail("Every node must have a unique id");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(2, graph.size());
+            assertNull(graph.getNode("inside"));
+        }
+    }
+
+    @Test
+    public void attach_rejectsTheNodesKeepingTheStateOfTheirSession() {
+        FlowGraph graph = new FlowGraph();
+        graph.addNode(multiChoice("choice"));
+        graph.attach();
+
+        try {
+            graph.attach();
+        } catch (IllegalStateException expected) {
+            assertFalse(graph.isShared());
+            return;
+        }
+        fail("A shared graph cannot have an ActionMultiChoice");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addNode_toASharedGraph_rejectsTheNodesKeepingTheStateOfTheirSession() {
+        FlowGraph graph = new FlowGraph();
+        graph.attach();
+        graph.attach();
+
+        graph.addNode(multiChoice("choice"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void resolve_inASharedGraph_rejectsTheBuiltNodesKeepingTheStateOfTheirSession() {
+        FlowGraph graph = new FlowGraph();
+        graph.addNode(new LazyNode("choice", true, () -> multiChoice("choice")));
+        graph.attach();
+        graph.attach();
+
+        graph.resolve(graph.getNode("choice"));
+    }
+
+    private static ActionMultiChoice multiChoice(String id) {
+        return new ActionMultiChoice.Builder(id)
+                .addOption(new ActionChipChoice.Builder("option").setText("option").build())
+                .setConfirmationAction(new ActionText.Builder("confirm").setText("confirm").build())
+                .build();
+    }
+
+    private static MessageText message(String id, String text) {
+        return new MessageText.Builder(id).setText(text).build();
+    }
+
+    /**
+     * The lookup the assistant did before the edges were indexed in both directions:
+     * every node whose incoming edges contain the given node.
+     */
+    private static List<Node> scanOutgoingEdges(FlowGraph graph, Node node) {
+        List<Node> result = null;
+        for (Node key : graph.nodes()) {
+            ArrayList<Node> edges = graph.getIncomingEdges(key);
+            if (edges != null && edges.contains(node)) {
+                if (result == null) result = new ArrayList<>();
+                result.add(key);
+            }
+        }
+        return result;
+    }
+}
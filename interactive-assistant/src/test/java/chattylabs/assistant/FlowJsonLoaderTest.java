@@ -0,0 +1,186 @@
+package chattylabs.assistant;
+
+import android.app.Activity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class FlowJsonLoaderTest {
+
+    private static final String FLOW = "{" +
+            "\"root\": \"welcome\"," +
+            "\"nodes\": [" +
+            "  { \"type\": \"MessageText\", \"id\": \"welcome\", \"text\": \"Hi!\", \"aloud\": true }," +
+            "  { \"type\": \"ActionText\", \"id\": \"yes\", \"text\": \"Yes\", \"order\": 2 }," +
+            "  { \"type\": \"ActionText\", \"id\": \"no\", \"text\": \"No\", \"order\": 1," +
+            "    \"contentDescriptions\": [\"no\", \"nope\"] }," +
+            "  { \"type\": \"MessageText\", \"id\": \"end\", \"text\": \"Bye\" }" +
+            "]," +
+            "\"edges\": [" +
+            "  { \"from\": \"welcome\", \"to\": [\"yes\", \"no\"] }," +
+            "  { \"from\": \"yes\", \"to\": \"end\" }," +
+            "  { \"from\": \"no\", \"to\": \"end\" }" +
+            "]}";
+
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+    private Activity activity;
+    private FlowJsonLoader loader;
+    private InteractiveAssistant assistant;
+
+    @Before
+    public void setUp() {
+        TestAssistants.initEmojiCompat();
+        activity = Robolectric.setupActivity(Activity.class);
+        loader = new FlowJsonLoader(activity);
+        assistant = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler).build();
+    }
+
+    private Node load(String json) throws IOException {
+        return loader.load(assistant, new StringReader(json));
+    }
+
+    private List<String> targetsOf(String id) {
+        List<String> targets = new ArrayList<>();
+        List<Node> edges = assistant.getFlowGraph().getOutgoingEdges(assistant.getFlowGraph().getNode(id));
+        if (edges != null) for (Node node : edges) targets.add(((HasId) node).getId());
+        return targets;
+    }
+
+    @Test
+    public void load_addsTheNodesAndTheEdges() throws IOException {
+        Node root = load(FLOW);
+
+        assertSame(assistant.getNode("welcome"), root);
+        MessageText welcome = (MessageText) root;
+        assertEquals("Hi!", welcome.getText());
+        assertTrue(welcome.aloud);
+        ActionText no = (ActionText) assistant.getNode("no");
+        assertEquals(1, no.getOrder());
+        assertEquals(Arrays.asList("no", "nope"), Arrays.asList(no.getContentDescriptions()));
+        assertEquals(Arrays.asList("yes", "no"), targetsOf("welcome"));
+        assertEquals(Arrays.asList("end"), targetsOf("yes"));
+        assertEquals(Arrays.asList("end"), targetsOf("no"));
+    }
+
+    @Test
+    public void load_connectsTheEdgesDeclaredBeforeTheNodes() throws IOException {
+        Node root = load("{" +
+                "\"edges\": [ { \"from\": \"first\", \"to\": \"second\" } ]," +
+                "\"nodes\": [" +
+                "  { \"type\": \"MessageText\", \"id\": \"first\", \"text\": \"1\" }," +
+                "  { \"type\": \"MessageText\", \"id\": \"second\", \"text\": \"2\" }" +
+                "]}");
+
+        // Without a root the first node is the root
+        assertSame(assistant.getNode("first"), root);
+        assertEquals(Arrays.asList("second"), targetsOf("first"));
+    }
+
+    @Test
+    public void load_resolvesTheResourcesByName() throws IOException {
+        load("{ \"nodes\": [" +
+             "  { \"type\": \"MessageImage\", \"id\": \"image\", \"image\": \"ic_check_black_24dp\"," +
+             "    \"tintColor\": \"android:color/white\" }" +
+             "]}");
+
+        MessageImage image = (MessageImage) assistant.getNode("image");
+        assertEquals(R.drawable.ic_check_black_24dp, image.image);
+        assertEquals(android.R.color.white, image.tintColor);
+    }
+
+    @Test
+    public void load_routesTheConditionalEdges() throws IOException {
+        Node root = load("{ \"nodes\": [" +
+                "  { \"type\": \"MessageText\", \"id\": \"welcome\", \"text\": \"Hi!\" }," +
+                "  { \"type\": \"MessageText\", \"id\": \"pro\", \"text\": \"Pro\" }," +
+                "  { \"type\": \"MessageText\", \"id\": \"free\", \"text\": \"Free\" }" +
+                "], \"edges\": [" +
+                "  { \"from\": \"welcome\", \"when\": \"plan == 'pro'\", \"to\": \"pro\" }," +
+                "  { \"from\": \"welcome\", \"when\": \"plan != 'pro'\", \"to\": \"free\" }" +
+                "]}");
+        assistant.setVariable("plan", "pro");
+
+        assistant.prepare().start(root);
+        scheduler.runUntilIdle();
+        assertSame(assistant.getNode("pro"), assistant.getCurrentNode());
+    }
+
+    @Test
+    public void load_readsTheModulesWhenTheyAreEntered() throws IOException {
+        List<String> opened = new ArrayList<>();
+        loader.setModuleSource("billing", () -> {
+            opened.add("billing");
+            return new StringReader("{ \"nodes\": [" +
+                    "  { \"type\": \"MessageText\", \"id\": \"invoice\", \"text\": \"Invoice\" }," +
+                    "  { \"type\": \"Module\", \"id\": \"details\" }" +
+                    "], \"edges\": [ { \"from\": \"invoice\", \"to\": \"details\" } ]}");
+        });
+        loader.setModuleSource("details", () -> {
+            opened.add("details");
+            return new StringReader("{ \"nodes\": [" +
+                    "  { \"type\": \"MessageText\", \"id\": \"amount\", \"text\": \"42\" }" +
+                    "]}");
+        });
+        Node root = load("{ \"nodes\": [" +
+                "  { \"type\": \"MessageText\", \"id\": \"welcome\", \"text\": \"Hi!\" }," +
+                "  { \"type\": \"Module\", \"id\": \"billing\" }" +
+                "], \"edges\": [ { \"from\": \"welcome\", \"to\": \"billing\" } ]}");
+        assertTrue(opened.isEmpty());
+
+        assistant.prepare().start(root);
+        scheduler.runUntilIdle();
+        assertEquals(Arrays.asList("billing", "details"), opened);
+        assertSame(assistant.getNode("amount"), assistant.getCurrentNode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_unknownType() throws IOException {
+        load("{ \"nodes\": [ { \"type\": \"Video\", \"id\": \"video\" } ]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_nodeWithoutId() throws IOException {
+        load("{ \"nodes\": [ { \"type\": \"MessageText\", \"text\": \"Hi!\" } ]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_edgeToAnUnknownNode() throws IOException {
+        load("{ \"nodes\": [ { \"type\": \"MessageText\", \"id\": \"welcome\", \"text\": \"Hi!\" } ]," +
+             "\"edges\": [ { \"from\": \"welcome\", \"to\": \"unknown\" } ]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_unknownColor() throws IOException {
+        load("{ \"nodes\": [ { \"type\": \"MessageText\", \"id\": \"welcome\", \"text\": \"Hi!\"," +
+             "\"tintColor\": \"#FF0000\" } ]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_moduleWithoutSource() throws IOException {
+        load("{ \"nodes\": [ { \"type\": \"Module\", \"id\": \"billing\" } ]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void load_noNodes() throws IOException {
+        load("{ \"edges\": [] }");
+    }
+
+    @Test(expected = IOException.class)
+    public void load_malformedJson() throws IOException {
+        load("{ \"nodes\": [ { \"type\": \"MessageText\", \"id\": ");
+    }
+}
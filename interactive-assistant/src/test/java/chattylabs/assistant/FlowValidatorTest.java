@@ -0,0 +1,152 @@
+package chattylabs.assistant;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FlowValidatorTest {
+
+    private final FlowGraph graph = new FlowGraph();
+
+    private Node message(String id) {
+        Node node = TestNodes.message(id);
+        graph.addNode(node);
+        return node;
+    }
+
+    private Node choice(String id, int order) {
+        Node node = TestNodes.choice(id, order);
+        graph.addNode(node);
+        return node;
+    }
+
+    private List<String> validate(Node root) {
+        CompiledFlow compiled = graph.compile();
+        return FlowValidator.validate(compiled, compiled.indexOf(root));
+    }
+
+    private String validationError(Node root) {
+        try {
+            validate(root);
+        } catch (IllegalStateException e) {
+            return e.getMessage();
+        }
+        fail("The flow should not be valid");
+        return null;
+    }
+
+    @Test
+    public void validFlow() {
+        Node root = message("root");
+        Node yes = choice("yes", 1);
+        Node no = choice("no", 2);
+        Node end = message("end");
+        graph.addEdge(yes, root);
+        graph.addEdge(no, root);
+        graph.addEdge(end, yes);
+        graph.addEdge(root, no);
+
+        assertTrue(validate(root).isEmpty());
+    }
+
+    @Test
+    public void unreachableNode_isOnlyAWarning() {
+        Node root = message("root");
+        Node end = message("end");
+        message("detached");
+        graph.addEdge(end, root);
+
+        List<String> warnings = validate(root);
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).contains("[detached]"));
+    }
+
+    @Test
+    public void actionWithSeveralConnections() {
+        Node root = message("root");
+        Node choice = choice("choice", 1);
+        graph.addEdge(choice, root);
+        graph.addEdge(message("a"), choice);
+        graph.addEdge(message("b"), choice);
+
+        assertTrue(validationError(root).contains("Action [choice] cannot have multiple connections"));
+    }
+
+    @Test
+    public void actionConnectedToAction() {
+        Node root = message("root");
+        Node first = choice("first", 1);
+        Node second = choice("second", 1);
+        graph.addEdge(first, root);
+        graph.addEdge(second, first);
+
+        assertTrue(validationError(root).contains("Action [first] can only be connected to a Message"));
+    }
+
+    @Test
+    public void branchMixingActionsAndMessages() {
+        Node root = message("root");
+        graph.addEdge(choice("choice", 1), root);
+        graph.addEdge(message("end"), root);
+
+        assertTrue(validationError(root).contains("Node [root] mixes Actions and Messages"));
+    }
+
+    @Test
+    public void actionWithConditionalConnection() {
+        Node root = message("root");
+        Node choice = choice("choice", 1);
+        graph.addEdge(choice, root);
+        graph.addEdge(message("end"), choice, Condition.compile("done"));
+
+        assertTrue(validationError(root).contains("Action [choice] cannot have a conditional connection"));
+    }
+
+    @Test
+    public void severalConnectionsWithoutCondition() {
+        Node root = message("root");
+        graph.addEdge(message("a"), root);
+        graph.addEdge(message("b"), root);
+
+        assertTrue(validationError(root).contains("Node [root] has several connections without condition"));
+    }
+
+    @Test
+    public void conditionalConnections() {
+        Node root = message("root");
+        graph.addEdge(message("a"), root, Condition.compile("age >= 18"));
+        graph.addEdge(message("b"), root, Condition.compile("age < 18"));
+        graph.addEdge(message("c"), root);
+
+        assertTrue(validate(root).isEmpty());
+    }
+
+    @Test
+    public void cycleWithoutExit() {
+        Node root = message("root");
+        Node a = message("a");
+        Node b = message("b");
+        graph.addEdge(a, root);
+        graph.addEdge(b, a);
+        graph.addEdge(a, b);
+
+        assertTrue(validationError(root).contains("is part of a cycle without exit"));
+    }
+
+    @Test
+    public void everyErrorIsReported() {
+        Node root = message("root");
+        Node first = choice("first", 1);
+        graph.addEdge(first, root);
+        graph.addEdge(message("end"), root);
+        graph.addEdge(choice("second", 2), first);
+
+        String error = validationError(root);
+        assertTrue(error.contains("[first] can only be connected to a Message"));
+        assertTrue(error.contains("[root] mixes Actions and Messages"));
+    }
+}
@@ -0,0 +1,110 @@
+package chattylabs.assistant;
+
+import android.app.Activity;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static chattylabs.assistant.TestAssistants.message;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class InteractiveAssistantModuleTest {
+
+    private Activity activity;
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+
+    @Before
+    public void setUp() {
+        TestAssistants.initEmojiCompat();
+        activity = Robolectric.setupActivity(Activity.class);
+    }
+
+    private InteractiveAssistant start(FlowModule module) {
+        InteractiveAssistant assistant = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler)
+                                                       .build();
+        MessageText welcome = message("welcome");
+        assistant.addNode(welcome);
+        assistant.addNode(message("end"));
+        assistant.addModule("module", module);
+        assistant.prepare().from("welcome").to("module");
+        assistant.prepare().start(welcome);
+        return assistant;
+    }
+
+    @Test
+    public void enteringAModule_loadsItsNodes() {
+        InteractiveAssistant assistant = start(module -> {
+            MessageText inside = message("inside");
+            module.addNode(inside);
+            // The module continues with a node of the flow it was loaded into
+            module.prepare().from("inside").to("end");
+            return inside;
+        });
+        FlowGraph graph = assistant.getFlowGraph();
+        assertNull(graph.getNode("inside"));
+
+        scheduler.runUntilIdle();
+
+        assertNotNull(graph.getNode("inside"));
+        assertEquals("end", ((HasId) assistant.getCurrentNode()).getId());
+    }
+
+    @Test
+    public void enteringANestedModule_loadsItWhenReached() {
+        InteractiveAssistant assistant = start(module -> {
+            MessageText outer = message("outer");
+            module.addNode(outer);
+            module.addModule("nested", nested -> {
+                MessageText inner = message("inner");
+                nested.addNode(inner);
+                nested.prepare().from("inner").to("end");
+                return inner;
+            });
+            module.prepare().from("outer").to("nested");
+            return outer;
+        });
+
+        scheduler.runUntilIdle();
+
+        assertNotNull(assistant.getFlowGraph().getNode("outer"));
+        assertNotNull(assistant.getFlowGraph().getNode("inner"));
+        assertEquals("end", ((HasId) assistant.getCurrentNode()).getId());
+    }
+
+    @Test
+    public void aModuleFailingToLoad_leavesTheGraphAsItWas() {
+        int[] attempts = {0};
+        InteractiveAssistant assistant = start(module -> {
+            MessageText inside = message("inside");
+            module.addNode(inside);
+            if (attempts[0]++ == 0) throw new IllegalStateException("Not available yet");
+            module.prepare().from("inside").to("end");
+            return inside;
+        });
+        FlowGraph graph = assistant.getFlowGraph();
+        int size = graph.size();
+
+        try {
+            scheduler.runUntilIdle();
+            fail("The module should have failed to load");
+        } catch (IllegalStateException expected) {
+            assertNull(graph.getNode("inside"));
+            assertEquals(size, graph.size());
+        }
+
+        // The module is loaded again when the flow enters it again
+        assistant.next();
+        scheduler.runUntilIdle();
+        assertNotNull(graph.getNode("inside"));
+        assertEquals("end", ((HasId) assistant.getCurrentNode()).getId());
+    }
+}
@@ -0,0 +1,167 @@
+package chattylabs.assistant;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static chattylabs.assistant.TestAssistants.action;
+import static chattylabs.assistant.TestAssistants.message;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class InteractiveAssistantResumeTest {
+
+    private static final String SEPARATOR = "\u001F";
+
+    private Activity activity;
+    private SharedPreferences preferences;
+
+    @Before
+    public void setUp() {
+        TestAssistants.initEmojiCompat();
+        activity = Robolectric.setupActivity(Activity.class);
+        preferences = activity.getSharedPreferences(InteractiveAssistant.INTERACTIVE_CHAT, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * welcome -> [left -> wrong, right -> tracked -> second -> third -> [again, done]]
+     */
+    private static Node buildFlow(InteractiveAssistant assistant) {
+        MessageText welcome = message("welcome");
+        ActionText left = action("left", 1);
+        ActionText right = action("right", 2);
+        MessageText wrong = message("wrong");
+        MessageText tracked = message("tracked");
+        MessageText second = message("second");
+        MessageText third = message("third");
+        ActionText again = action("again", 1);
+        ActionText done = action("done", 2);
+        for (Node node : new Node[]{welcome, left, right, wrong, tracked, second, third, again, done}) {
+            assistant.addNode(node);
+        }
+        Flow flow = assistant.prepare();
+        flow.from(welcome).to(left, right);
+        flow.from(left).to(wrong);
+        flow.from(right).to(tracked);
+        flow.from(tracked).to(second);
+        flow.from(second).to(third);
+        flow.from(third).to(again, done);
+        return welcome;
+    }
+
+    private InteractiveAssistant start(RecyclerView recyclerView, VirtualScheduler scheduler) {
+        InteractiveAssistant assistant = TestAssistants.builder(recyclerView, scheduler)
+                .withLastStateEnabled(true).build();
+        assistant.prepare().start(buildFlow(assistant));
+        scheduler.runUntilIdle();
+        return assistant;
+    }
+
+    @Test
+    public void savedPath_endsWithTheTrackedNode() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        RecyclerView recyclerView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant assistant = start(recyclerView, scheduler);
+
+        TestAssistants.select(recyclerView, (Action) assistant.getNode("right"));
+        scheduler.runUntilIdle();
+
+        assertTrue(assistant.getCurrentNode() instanceof ActionList);
+        assertEquals("tracked", preferences.getString(InteractiveAssistantImpl.LAST_VISITED_NODE, null));
+        assertEquals("welcome" + SEPARATOR + "right" + SEPARATOR + "tracked",
+                     preferences.getString(InteractiveAssistantImpl.RESUME_PATH, null));
+    }
+
+    @Test
+    public void start_restoresTheSavedPath() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        RecyclerView recyclerView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant assistant = start(recyclerView, scheduler);
+        TestAssistants.select(recyclerView, (Action) assistant.getNode("right"));
+        scheduler.runUntilIdle();
+        // Without the visited Actions, walking the flow would take the first one
+        preferences.edit().remove(InteractiveAssistantImpl.VISITED_NODES).apply();
+
+        VirtualScheduler resumedScheduler = new VirtualScheduler();
+        RecyclerView resumedView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant resumed = TestAssistants.builder(resumedView, resumedScheduler)
+                .withLastStateEnabled(true).build();
+        resumed.prepare().start(buildFlow(resumed));
+
+        List<Node> items = TestAssistants.adapter(resumedView).getLatestItems();
+        assertEquals(3, items.size());
+        assertSame(resumed.getNode("welcome"), items.get(0));
+        assertEquals("right", ((FeedbackActionText) items.get(1)).getText());
+        assertSame(resumed.getNode("tracked"), items.get(2));
+        assertSame(resumed.getNode("tracked"), resumed.getCurrentNode());
+
+        // The conversation goes on from the tracked node
+        resumedScheduler.runUntilIdle();
+        items = TestAssistants.adapter(resumedView).getLatestItems();
+        assertSame(resumed.getNode("second"), items.get(3));
+        assertSame(resumed.getNode("third"), items.get(4));
+        assertTrue(items.get(5) instanceof ActionList);
+    }
+
+    /**
+     * m0 -> m1 -> ... -> m[size - 1] -> m0
+     */
+    private static Node buildLoop(InteractiveAssistant assistant, int size) {
+        MessageText[] messages = new MessageText[size];
+        for (int i = 0; i < size; i++) {
+            messages[i] = message("m" + i);
+            assistant.addNode(messages[i]);
+        }
+        Flow flow = assistant.prepare();
+        for (int i = 0; i < size; i++) flow.from(messages[i]).to(messages[(i + 1) % size]);
+        return messages[0];
+    }
+
+    private InteractiveAssistant resume(RecyclerView recyclerView, int size) {
+        InteractiveAssistant assistant = TestAssistants.builder(recyclerView, new VirtualScheduler())
+                .withLastStateEnabled(true).build();
+        assistant.prepare().start(buildLoop(assistant, size));
+        return assistant;
+    }
+
+    @Test
+    public void start_restoresALongLoopingFlowWithoutASavedPath() {
+        int size = 5000;
+        preferences.edit().putString(InteractiveAssistantImpl.LAST_VISITED_NODE, "m" + (size - 1)).commit();
+
+        RecyclerView recyclerView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant assistant = resume(recyclerView, size);
+
+        // Walked one node after the other, without a call per node on the stack
+        List<Node> items = TestAssistants.adapter(recyclerView).getLatestItems();
+        assertEquals(size, items.size());
+        assertSame(assistant.getNode("m0"), items.get(0));
+        assertSame(assistant.getNode("m" + (size - 1)), items.get(size - 1));
+        assertSame(assistant.getNode("m" + (size - 1)), assistant.getCurrentNode());
+    }
+
+    @Test
+    public void start_stopsWalkingALoopThatDoesNotReachTheSavedNode() {
+        preferences.edit().putString(InteractiveAssistantImpl.LAST_VISITED_NODE, "removed").commit();
+
+        RecyclerView recyclerView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant assistant = resume(recyclerView, 3);
+
+        // The flow has changed, so the conversation starts again from the root
+        List<Node> items = TestAssistants.adapter(recyclerView).getLatestItems();
+        assertEquals(1, items.size());
+        assertSame(assistant.getNode("m0"), assistant.getCurrentNode());
+    }
+}
@@ -0,0 +1,75 @@
+package chattylabs.assistant;
+
+import android.app.Activity;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static chattylabs.assistant.TestAssistants.message;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class InteractiveAssistantTimingTest {
+
+    private static final int STEPS = 200;
+
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        TestAssistants.initEmojiCompat();
+        activity = Robolectric.setupActivity(Activity.class);
+    }
+
+    @Test
+    public void conversation_runsInVirtualTime() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        RecyclerView recyclerView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant assistant = TestAssistants.builder(recyclerView, scheduler).build();
+        Node[] messages = new Node[STEPS];
+        for (int i = 0; i < STEPS; i++) {
+            messages[i] = message("message" + i);
+            assistant.addNode(messages[i]);
+        }
+        Flow flow = assistant.prepare();
+        for (int i = 1; i < STEPS; i++) flow.from(messages[i - 1]).to(messages[i]);
+        int[] done = new int[1];
+        assistant.setOnDoneListener(() -> done[0]++);
+
+        flow.start(messages[0]);
+        // The root is displayed at once and every other message waits for the pacing policy
+        assertEquals((STEPS - 1) * TestAssistants.DELAY, scheduler.runUntilIdle());
+
+        assertEquals(1, done[0]);
+        assertEquals(STEPS, TestAssistants.adapter(recyclerView).getLatestItems().size());
+        assertSame(messages[STEPS - 1], assistant.getCurrentNode());
+    }
+
+    @Test
+    public void fastForward_skipsTheRemainingDelays() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        InteractiveAssistant assistant = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler).build();
+        Node first = message("first");
+        Node second = message("second");
+        Node third = message("third");
+        assistant.addNode(first);
+        assistant.addNode(second);
+        assistant.addNode(third);
+        Flow flow = assistant.prepare();
+        flow.from(first).to(second);
+        flow.from(second).to(third);
+        flow.start(first);
+
+        assistant.fastForward();
+        assertSame(second, assistant.getCurrentNode());
+        // The following messages are shown without delay
+        assertEquals(0, scheduler.runUntilIdle());
+        assertSame(third, assistant.getCurrentNode());
+    }
+}
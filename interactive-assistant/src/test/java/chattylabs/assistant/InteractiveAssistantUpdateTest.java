@@ -0,0 +1,84 @@
+package chattylabs.assistant;
+
+import android.app.Activity;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static chattylabs.assistant.TestAssistants.message;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class InteractiveAssistantUpdateTest {
+
+    private Activity activity;
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+
+    private final FlowModule module = assistant -> {
+        MessageText inside = message("inside");
+        assistant.addNode(inside);
+        return inside;
+    };
+
+    @Before
+    public void setUp() {
+        TestAssistants.initEmojiCompat();
+        activity = Robolectric.setupActivity(Activity.class);
+    }
+
+    private FlowModule flow(String welcomeText) {
+        return assistant -> {
+            MessageText welcome = new MessageText.Builder("welcome").setText(welcomeText).build();
+            assistant.addNode(welcome);
+            assistant.addModule("module", module);
+            assistant.prepare().from("welcome").to("module");
+            return welcome;
+        };
+    }
+
+    @Test
+    public void update_insideALoadedModule() {
+        RecyclerView recyclerView = TestAssistants.recyclerView(activity);
+        InteractiveAssistant assistant = TestAssistants.builder(recyclerView, scheduler).build();
+        assistant.prepare().start(flow("Hello").load(assistant));
+        scheduler.runUntilIdle();
+        Node inside = assistant.getCurrentNode();
+        assertEquals("inside", ((HasId) inside).getId());
+
+        assistant.update(flow("Hi"));
+
+        assertSame(inside, assistant.getCurrentNode());
+        assertSame(inside, assistant.getNode("inside"));
+        MessageText welcome = (MessageText) TestAssistants.adapter(recyclerView).getLatestItems().get(0);
+        assertEquals("Hi", welcome.getText());
+        assertSame(welcome, assistant.getNode("welcome"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void update_sharedGraph() {
+        InteractiveAssistant owner = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler).build();
+        owner.prepare().start(flow("Hello").load(owner));
+        TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler)
+                      .withFlowGraph(owner.getFlowGraph()).withSessionId("session").build();
+
+        owner.update(flow("Hi"));
+    }
+
+    @Test
+    public void update_afterTheOtherSessionsAreReleased() {
+        InteractiveAssistant owner = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler).build();
+        owner.prepare().start(flow("Hello").load(owner));
+        InteractiveAssistant session = TestAssistants.builder(TestAssistants.recyclerView(activity), scheduler)
+                .withFlowGraph(owner.getFlowGraph()).withSessionId("session").build();
+        session.release();
+
+        owner.update(flow("Hi"));
+        assertEquals("Hi", ((MessageText) owner.getNode("welcome")).getText());
+    }
+}
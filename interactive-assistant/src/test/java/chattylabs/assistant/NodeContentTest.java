@@ -0,0 +1,114 @@
+package chattylabs.assistant;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NodeContentTest {
+
+    private static MessageText.Builder message() {
+        return new MessageText.Builder("message").setText("Hello");
+    }
+
+    private static ActionText.Builder action() {
+        return new ActionText.Builder("action").setText("Yes").setOrder(1);
+    }
+
+    private static ActionIcon.Builder icon() {
+        return new ActionIcon.Builder("icon").setIcon(1).setText("Like");
+    }
+
+    private static ActionMultiChoice.Builder multiChoice(ActionText confirmation, String option) {
+        return new ActionMultiChoice.Builder("choice")
+                .addOption(new ActionChipChoice.Builder("first").setText(option).build())
+                .addOption(new ActionChipChoice.Builder("second").setText("Second").build())
+                .setConfirmationAction(confirmation);
+    }
+
+    @Test
+    public void messageText_comparesEveryField() {
+        assertTrue(NodeContent.same(message().build(), message().build()));
+        assertFalse(NodeContent.same(message().build(), message().setText("Bye").build()));
+        assertFalse(NodeContent.same(message().build(), message().setTextSize(20).build()));
+        assertFalse(NodeContent.same(message().build(), message().setTintColor(2).build()));
+        assertFalse(NodeContent.same(message().build(), message().setAloud(true).build()));
+        assertFalse(NodeContent.same(message().build(), message().setFirstMessage(true).build()));
+        assertFalse(NodeContent.same(message().build(), message().setInboundMessage(true).build()));
+    }
+
+    @Test
+    public void actionText_comparesEveryField() {
+        assertTrue(NodeContent.same(action().build(), action().build()));
+        assertFalse(NodeContent.same(action().build(), action().setText("No").build()));
+        assertFalse(NodeContent.same(action().build(), action().setOrder(2).build()));
+        assertFalse(NodeContent.same(action().build(), action().setTextSize(20).build()));
+        assertFalse(NodeContent.same(action().build(),
+                                     action().setContentDescriptions(new String[]{"yes"}).build()));
+        assertFalse(NodeContent.same(action().build(), action().skipTracking(true).build()));
+    }
+
+    @Test
+    public void callbacks_areNotCompared() {
+        // A flow built again creates new lambdas for the same content
+        assertTrue(NodeContent.same(message().setOnLoaded(() -> {}).build(),
+                                    message().setOnLoaded(() -> {}).build()));
+        assertTrue(NodeContent.same(action().setOnSelected(action -> {}).build(),
+                                    action().setOnSelected(action -> {}).build()));
+    }
+
+    @Test
+    public void takeCallbacks_givesTheNewCallbacksToTheKeptNode() {
+        Action.OnSelected onSelected = action -> {};
+        ActionText old = action().setOnSelected(action -> {}).build();
+        ActionText node = action().setOnSelected(onSelected).build();
+        NodeContent.takeCallbacks(old, node);
+        assertSame(onSelected, old.onSelected);
+
+        Runnable onLoaded = () -> {};
+        ActionText confirmation = action().setOnSelected(onSelected).build();
+        ActionMultiChoice oldChoice = multiChoice(action().build(), "First").build();
+        ActionMultiChoice choice = multiChoice(confirmation, "First").setOnLoaded(onLoaded).build();
+        NodeContent.takeCallbacks(oldChoice, choice);
+        assertSame(onLoaded, oldChoice.onLoaded);
+        assertSame(onSelected, oldChoice.confirmationAction.onSelected);
+    }
+
+    @Test
+    public void actionIcon_comparedByContent() {
+        assertTrue(NodeContent.same(icon().build(), icon().build()));
+        assertFalse(NodeContent.same(icon().build(), icon().setIcon(2).build()));
+        assertFalse(NodeContent.same(icon().build(), icon().setTintColor(2).build()));
+    }
+
+    @Test
+    public void actionMultiChoice_comparesTheOptions() {
+        ActionText confirmation = action().build();
+        assertTrue(NodeContent.same(multiChoice(confirmation, "First").build(),
+                                    multiChoice(confirmation, "First").build()));
+        assertFalse(NodeContent.same(multiChoice(confirmation, "First").build(),
+                                     multiChoice(confirmation, "Other").build()));
+        assertFalse(NodeContent.same(multiChoice(confirmation, "First").build(),
+                                     multiChoice(action().setText("Ok").build(), "First").build()));
+    }
+
+    @Test
+    public void differentTypes_areChanged() {
+        assertFalse(NodeContent.same(new MessageText.Builder("same").setText("Yes").build(),
+                                     new ActionText.Builder("same").setText("Yes").build()));
+    }
+
+    @Test
+    public void actionList_comparesTheActions() {
+        ActionList old = new ActionList();
+        old.add(action().build());
+        ActionList same = new ActionList();
+        same.add(action().build());
+        ActionList changed = new ActionList();
+        changed.add(action().setText("No").build());
+
+        assertTrue(NodeContent.same(old, same));
+        assertFalse(NodeContent.same(old, changed));
+    }
+}
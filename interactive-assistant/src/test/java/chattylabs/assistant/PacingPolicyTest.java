@@ -0,0 +1,53 @@
+package chattylabs.assistant;
+
+import org.junit.Test;
+
+import static chattylabs.assistant.ReadingSpeedPacingPolicy.MAX_DELAY;
+import static chattylabs.assistant.ReadingSpeedPacingPolicy.MIN_DELAY;
+import static org.junit.Assert.assertEquals;
+
+public class PacingPolicyTest {
+
+    private final PacingPolicy policy = PacingPolicy.readingSpeed(10);
+    private final Node next = TestNodes.message("next");
+
+    private static MessageText message(int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) text.append('a');
+        return new MessageText.Builder("message").setText(text.toString()).build();
+    }
+
+    @Test
+    public void readingSpeed_waitsForThePreviousText() {
+        // 10 characters per second
+        assertEquals(500, policy.getDelay(message(5), next, false));
+        assertEquals(1200, policy.getDelay(message(12), next, false));
+    }
+
+    @Test
+    public void readingSpeed_isClamped() {
+        assertEquals(MIN_DELAY, policy.getDelay(message(1), next, false));
+        assertEquals(MAX_DELAY, policy.getDelay(message(1000), next, false));
+        // Nothing to read
+        assertEquals(MIN_DELAY, policy.getDelay(null, next, false));
+        assertEquals(MIN_DELAY, policy.getDelay(TestNodes.message("image"), next, false));
+    }
+
+    @Test
+    public void readingSpeed_doesNotWaitForTheNodesAlreadySeen() {
+        assertEquals(0, policy.getDelay(message(1000), next, true));
+        assertEquals(0, policy.getDelay(null, next, true));
+    }
+
+    @Test
+    public void fixed_alwaysWaitsTheSame() {
+        PacingPolicy fixed = PacingPolicy.fixed(500);
+        assertEquals(500, fixed.getDelay(message(1000), next, false));
+        assertEquals(500, fixed.getDelay(null, next, true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readingSpeed_mustBePositive() {
+        PacingPolicy.readingSpeed(0);
+    }
+}
@@ -0,0 +1,99 @@
+package chattylabs.assistant;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionSchedulerTest {
+
+    private final VirtualScheduler clock = new VirtualScheduler();
+    private final SessionScheduler scheduler = new SessionScheduler(clock);
+    private final List<String> ran = new ArrayList<>();
+    private final List<Long> times = new ArrayList<>();
+
+    private SessionScheduler.Task schedule(String name, long delay) {
+        return scheduler.schedule(() -> {
+            ran.add(name);
+            times.add(clock.uptimeMillis());
+        }, delay);
+    }
+
+    @Test
+    public void resume_waitsOnlyTheRemainingTime() {
+        schedule("step", 1000);
+        clock.advanceBy(400);
+        scheduler.pause();
+        assertTrue(scheduler.isPaused());
+
+        // Nothing runs while paused, however long it takes
+        clock.advanceBy(5000);
+        assertTrue(ran.isEmpty());
+
+        scheduler.resume();
+        clock.advanceBy(599);
+        assertTrue(ran.isEmpty());
+        clock.advanceBy(1);
+        assertEquals(Arrays.asList("step"), ran);
+        assertEquals(Arrays.asList(6000L), times);
+    }
+
+    @Test
+    public void resume_keepsTheOrderOfTheTasks() {
+        schedule("loading", 1000);
+        schedule("step", 300);
+        clock.advanceBy(100);
+        scheduler.pause();
+        scheduler.resume();
+        clock.runUntilIdle();
+        assertEquals(Arrays.asList("step", "loading"), ran);
+        assertEquals(Arrays.asList(300L, 1000L), times);
+    }
+
+    @Test
+    public void schedule_whilePaused_startsWhenResumed() {
+        scheduler.pause();
+        schedule("step", 200);
+        clock.advanceBy(1000);
+        assertTrue(ran.isEmpty());
+
+        scheduler.resume();
+        clock.runUntilIdle();
+        assertEquals(Arrays.asList(1200L), times);
+    }
+
+    @Test
+    public void cancel_whilePaused() {
+        SessionScheduler.Task task = schedule("step", 200);
+        scheduler.pause();
+        scheduler.cancel(task);
+        scheduler.resume();
+        clock.runUntilIdle();
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    public void runNow_onlyOnce() {
+        SessionScheduler.Task task = schedule("step", 200);
+        scheduler.runNow(task);
+        assertEquals(Arrays.asList(0L), times);
+
+        clock.runUntilIdle();
+        scheduler.runNow(task);
+        assertEquals(1, ran.size());
+    }
+
+    @Test
+    public void cancelAll_alsoEndsThePause() {
+        schedule("step", 200);
+        scheduler.pause();
+        scheduler.cancelAll();
+        assertFalse(scheduler.isPaused());
+        assertEquals(0, clock.getPendingCount());
+    }
+}
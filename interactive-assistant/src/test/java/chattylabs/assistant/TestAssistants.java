@@ -0,0 +1,58 @@
+package chattylabs.assistant;
+
+import android.app.Activity;
+import android.view.View;
+
+import androidx.emoji.text.EmojiCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Builds assistants for Robolectric tests. The RecyclerView is never attached to a window,
+ * so the items are only kept by the adapter and no view is inflated.
+ */
+final class TestAssistants {
+
+    static final long DELAY = 100;
+
+    private TestAssistants() {}
+
+    /**
+     * Fails at once, so the assistants do not wait for the emoji fonts to be downloaded.
+     */
+    static void initEmojiCompat() {
+        EmojiCompat.init(new EmojiCompat.Config(callback -> callback.onFailed(new Throwable("No fonts in tests"))) {});
+    }
+
+    static RecyclerView recyclerView(Activity activity) {
+        RecyclerView recyclerView = new RecyclerView(activity);
+        recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        return recyclerView;
+    }
+
+    static InteractiveAssistant.IOptional builder(RecyclerView recyclerView, Scheduler scheduler) {
+        return new InteractiveAssistant.Builder()
+                .withViewComponent(recyclerView)
+                .withScheduler(scheduler)
+                .withPacingPolicy(PacingPolicy.fixed(DELAY));
+    }
+
+    static AssistantAdapter adapter(RecyclerView recyclerView) {
+        return (AssistantAdapter) recyclerView.getAdapter();
+    }
+
+    /**
+     * Selects the Action the way its view does when it is clicked.
+     */
+    static void select(RecyclerView recyclerView, Action action) {
+        adapter(recyclerView).getActionListener().onClick(new View(recyclerView.getContext()), action);
+    }
+
+    static MessageText message(String id) {
+        return new MessageText.Builder(id).setText(id).build();
+    }
+
+    static ActionText action(String id, int order) {
+        return new ActionText.Builder(id).setText(id).setOrder(order).build();
+    }
+}
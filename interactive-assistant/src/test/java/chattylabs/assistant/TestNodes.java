@@ -0,0 +1,67 @@
+package chattylabs.assistant;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Nodes without views, so the graph can be tested on the JVM.
+ */
+final class TestNodes {
+
+    private TestNodes() {}
+
+    static Message message(String id) {
+        return new Message(id);
+    }
+
+    static Choice choice(String id, int order) {
+        return new Choice(id, order);
+    }
+
+    static class Message implements Node, HasId {
+        final String id;
+
+        Message(String id) {
+            this.id = id;
+        }
+
+        @NonNull @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+
+    static class Choice implements Action, HasId {
+        final String id;
+        final int order;
+
+        Choice(String id, int order) {
+            this.id    = id;
+            this.order = order;
+        }
+
+        @NonNull @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public int compareTo(@NonNull Action o) {
+            return Integer.compare(order, o.getOrder());
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package chattylabs.assistant;
+
+import android.text.SpannableString;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class TextCacheTest {
+
+    @Before
+    public void setUp() {
+        TestAssistants.initEmojiCompat();
+    }
+
+    @Test
+    public void get_isKeptWhileTheTextIsTheSame() {
+        CharSequence value = TextCache.get("kept", "Hello <b>you</b>");
+        assertEquals("Hello you", value.toString());
+        assertSame(value, TextCache.get("kept", "Hello <b>you</b>"));
+
+        CharSequence changed = TextCache.get("kept", "Bye");
+        assertEquals("Bye", changed.toString());
+        assertNotSame(value, changed);
+    }
+
+    @Test
+    public void get_withoutId_isKeptByText() {
+        CharSequence value = TextCache.get(null, "No id");
+        assertSame(value, TextCache.get(null, "No id"));
+    }
+
+    @Test
+    public void get_doesNotKeepTheSpans() {
+        SpannableString text = new SpannableString("Spanned");
+        assertNotSame(TextCache.get("spanned", text), TextCache.get("spanned", text));
+    }
+
+    @Test
+    public void setText_invalidatesTheText() {
+        MessageText message = new MessageText.Builder("message").setText("Hello").build();
+        CharSequence value = TextCache.get(message.id, message.getText());
+        assertSame(value, TextCache.get(message.id, message.getText()));
+
+        // Even with the same text, the node is formatted again
+        message.setText("Hello");
+        assertNotSame(value, TextCache.get(message.id, message.getText()));
+    }
+}
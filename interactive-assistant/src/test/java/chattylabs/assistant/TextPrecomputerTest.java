@@ -0,0 +1,87 @@
+package chattylabs.assistant;
+
+import android.text.TextPaint;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class TextPrecomputerTest {
+
+    private static final long TIMEOUT = 5000;
+
+    private final PrecomputedTextCompat.Params params = params(14);
+
+    private static PrecomputedTextCompat.Params params(float textSize) {
+        TextPaint paint = new TextPaint();
+        paint.setTextSize(textSize);
+        return new PrecomputedTextCompat.Params.Builder(paint).build();
+    }
+
+    /**
+     * Waits for the text of the message, measured on the background thread.
+     */
+    private PrecomputedTextCompat await(MessageText message) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        PrecomputedTextCompat text;
+        while ((text = TextPrecomputer.get(message, params)) == null && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        return text;
+    }
+
+    @Before
+    public void setUp() {
+        TestAssistants.initEmojiCompat();
+        TextPrecomputer.setParams(params);
+    }
+
+    @Test
+    public void prepare_measuresTheTextOfTheMessage() throws InterruptedException {
+        MessageText message = new MessageText.Builder("measured").setText("Hello").build();
+        TextPrecomputer.prepare(message);
+
+        PrecomputedTextCompat text = await(message);
+        assertNotNull(text);
+        assertEquals("Hello", text.toString());
+    }
+
+    @Test
+    public void get_ignoresATextMeasuredWithOtherParams() throws InterruptedException {
+        MessageText message = new MessageText.Builder("params").setText("Hello").build();
+        TextPrecomputer.prepare(message);
+        assertNotNull(await(message));
+
+        assertNull(TextPrecomputer.get(message, params(30)));
+    }
+
+    @Test
+    public void get_ignoresATextThatChanged() throws InterruptedException {
+        MessageText message = new MessageText.Builder("changed").setText("Hello").build();
+        TextPrecomputer.prepare(message);
+        assertNotNull(await(message));
+
+        message.setText("Bye");
+        assertNull(TextPrecomputer.get(message, params));
+    }
+
+    @Test
+    public void prepare_skipsTheMessagesWithTheirOwnTextSize() throws InterruptedException {
+        MessageText sized = new MessageText.Builder("sized").setText("Hello").setTextSize(30).build();
+        MessageText message = new MessageText.Builder("default").setText("Hello").build();
+        TextPrecomputer.prepare(sized);
+        TextPrecomputer.prepare(message);
+
+        // The messages are measured one after the other
+        assertNotNull(await(message));
+        assertNull(TextPrecomputer.get(sized, params));
+    }
+}
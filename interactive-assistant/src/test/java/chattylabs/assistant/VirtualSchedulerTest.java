@@ -0,0 +1,76 @@
+package chattylabs.assistant;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualSchedulerTest {
+
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+    private final List<String> ran = new ArrayList<>();
+
+    private Scheduler.Token schedule(String name, long delay) {
+        return scheduler.schedule(() -> ran.add(name + "@" + scheduler.uptimeMillis()), delay);
+    }
+
+    @Test
+    public void advanceBy_runsTheDueTasksInOrder() {
+        schedule("late", 300);
+        schedule("early", 100);
+        schedule("never", 1000);
+
+        scheduler.advanceBy(500);
+        assertEquals(Arrays.asList("early@100", "late@300"), ran);
+        assertEquals(500, scheduler.uptimeMillis());
+        assertEquals(1, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void tasksDueAtTheSameTime_runInTheOrderTheyWereScheduled() {
+        schedule("first", 100);
+        schedule("second", 100);
+        schedule("now", -10);
+
+        scheduler.runUntilIdle();
+        assertEquals(Arrays.asList("now@0", "first@100", "second@100"), ran);
+    }
+
+    @Test
+    public void cancelledTasks_neverRun() {
+        Scheduler.Token token = schedule("cancelled", 100);
+        schedule("kept", 200);
+        token.cancel();
+
+        assertEquals(1, scheduler.getPendingCount());
+        assertEquals(200, scheduler.runUntilIdle());
+        assertEquals(Arrays.asList("kept@200"), ran);
+    }
+
+    @Test
+    public void runUntilIdle_runsTheTasksScheduledByOtherTasks() {
+        scheduler.advanceBy(50);
+        scheduler.schedule(() -> {
+            schedule("nested", 100);
+            ran.add("outer@" + scheduler.uptimeMillis());
+        }, 100);
+
+        assertEquals(200, scheduler.runUntilIdle());
+        assertEquals(Arrays.asList("outer@150", "nested@250"), ran);
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void advanceBy_runsTheNestedTasksThatBecomeDue() {
+        scheduler.schedule(() -> schedule("nested", 50), 100);
+
+        scheduler.advanceBy(120);
+        assertTrue(ran.isEmpty());
+        scheduler.advanceBy(30);
+        assertEquals(Arrays.asList("nested@150"), ran);
+    }
+}